@@ -12,6 +12,7 @@ import org.fit.layout.model.Area;
 import org.fit.layout.model.AreaTopology;
 import org.fit.layout.model.Box;
 import org.fit.layout.model.Rectangular;
+import org.fit.layout.patterns.model.AreaOccupancySet;
 
 /**
  * General purpose area analysis functions.
@@ -227,6 +228,10 @@ public class AreaUtils
      */
     public static boolean areasOverlap(Collection<Area> areas1, Collection<Area> areas2, double minPercentage)
     {
+        if (areas1 instanceof AreaOccupancySet)
+            return ((AreaOccupancySet) areas1).overlaps(areas2, minPercentage);
+        if (areas2 instanceof AreaOccupancySet)
+            return ((AreaOccupancySet) areas2).overlaps(areas1, minPercentage);
         for (Area a1 : areas1)
         {
             for (Area a2 : areas2)
@@ -247,6 +252,8 @@ public class AreaUtils
      */
     public static boolean areasOverlap(Area a1, Collection<Area> areas2, double minPercentage)
     {
+        if (areas2 instanceof AreaOccupancySet)
+            return ((AreaOccupancySet) areas2).overlaps(a1, minPercentage);
         for (Area a2 : areas2)
         {
             if (areasOverlap(a1, a2, minPercentage))
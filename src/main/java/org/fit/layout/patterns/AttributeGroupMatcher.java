@@ -15,6 +15,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
@@ -23,9 +28,10 @@ import org.fit.layout.patterns.chunks.ChunksSource;
 import org.fit.layout.patterns.chunks.HintStyle;
 import org.fit.layout.patterns.chunks.PresentationBasedChunksSource;
 import org.fit.layout.patterns.chunks.PresentationHint;
+import org.fit.layout.patterns.chunks.TagOccurrenceCache;
 import org.fit.layout.patterns.graph.Group;
-import org.fit.layout.patterns.model.AreaConnection;
 import org.fit.layout.patterns.model.AreaStyle;
+import org.fit.layout.patterns.model.BestCandidates;
 import org.fit.layout.patterns.model.ConnectionPattern;
 import org.fit.layout.patterns.model.Match;
 import org.fit.layout.patterns.model.MatchResult;
@@ -34,6 +40,7 @@ import org.fit.layout.patterns.model.MatchStatistics;
 import org.fit.layout.patterns.model.MatcherConfiguration;
 import org.fit.layout.patterns.model.TagConnection;
 import org.fit.layout.patterns.model.TagPair;
+import org.fit.layout.patterns.model.TagRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,8 +62,22 @@ public class AttributeGroupMatcher extends BaseMatcher
     public static final float MIN_TAG_SUPPORT_TRAIN = 0.09f;
     /** Minimal tag support for considering the area to have the given tag -- matching step */
     public static final float MIN_TAG_SUPPORT_MATCH = 0.09f;
-    /** Use chunks caching while scanning different configurations. Currently, it seems that it does not help much */
+    /** Use chunks caching while scanning different configurations. The box extraction and occurrence stages are shared among the style maps */
     private static final boolean USE_CHUNKS_CACHE = false;
+    /** Share the tag occurrences found by the taggers among the chunk sources of a configuration scan */
+    private static final boolean USE_OCCURRENCE_CACHE = true;
+    /** Skip the evaluation of the configurations that cannot get among the best ones based on their score upper bounds */
+    private static final boolean USE_SCORE_BOUNDS = true;
+    /** Order the pattern connections by their estimated fan-out in the iterative match search */
+    private static final boolean USE_MATCH_PLANNER = true;
+    /** Evaluate the patterns without dependency matches as joins of the relation tables of the connections */
+    private static final boolean USE_JOIN_SEARCH = true;
+    /** Share the relation tables of the join search among the configurations with common pattern prefixes */
+    private static final boolean USE_PREFIX_CACHE = true;
+    /** Scan only one of the style maps that produce the same tagged areas */
+    private static final boolean USE_STYLE_MAP_FINGERPRINTS = true;
+    /** Number of style maps taken from the style map enumerator at once */
+    private static final int STYLE_MAP_BATCH_SIZE = 64;
 
     private List<Attribute> attrs; //list of all attributes
     private List<AttributeGroupMatcher> dependencies; //already configured group matchers
@@ -74,6 +95,22 @@ public class AttributeGroupMatcher extends BaseMatcher
     
     //testing configuration
     private MatcherConfiguration tconf;
+    
+    //number of parallel workers used for scanning the configurations (1 means sequential scan)
+    private int parallelism = 1;
+    
+    //budget of the configuration scan (0 means unlimited)
+    private long timeLimit = 0;
+    private int maxEvaluations = 0;
+    //was the last configuration scan completed within the budget?
+    private boolean complete = true;
+    //number of style maps skipped in the last configuration scan as equivalent to other ones
+    private int collapsedStyleMaps = 0;
+    //number of candidate configurations evicted in the last configuration scan over the capacity
+    private int evictedCandidates = 0;
+    
+    //use the style resolvers that compute the tags of each area only once
+    private boolean cachingResolvers = false;
 
     
     public AttributeGroupMatcher(List<Attribute> attrs)
@@ -321,6 +358,101 @@ public class AttributeGroupMatcher extends BaseMatcher
         tconf = conf;
     }
     
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of parallel workers used for scanning the possible configurations in
+     * {@link #configure(Area)}. The default value 1 means that the configurations are scanned
+     * sequentially.
+     * @param parallelism the number of workers
+     */
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    public long getTimeLimit()
+    {
+        return timeLimit;
+    }
+
+    /**
+     * Sets the maximal time that may be spent by {@link #configure(Area)}. When the time limit
+     * is exceeded, the configuration scan is stopped and the best configurations found so far
+     * are used.
+     * @param timeLimit the time limit in milliseconds or 0 for no limit
+     */
+    public void setTimeLimit(long timeLimit)
+    {
+        this.timeLimit = Math.max(0, timeLimit);
+    }
+
+    public int getMaxEvaluations()
+    {
+        return maxEvaluations;
+    }
+
+    /**
+     * Sets the maximal number of configurations evaluated by {@link #configure(Area)}. When the limit
+     * is reached, the configuration scan is stopped and the best configurations found so far
+     * are used.
+     * @param maxEvaluations the maximal number of evaluations or 0 for no limit
+     */
+    public void setMaxEvaluations(int maxEvaluations)
+    {
+        this.maxEvaluations = Math.max(0, maxEvaluations);
+    }
+    
+    /**
+     * Checks whether the last {@link #configure(Area)} call has scanned all the possible configurations.
+     * @return {@code false} when the scan has been stopped because the time limit or the maximal
+     * number of evaluations has been reached, {@code true} otherwise
+     */
+    public boolean isConfigurationComplete()
+    {
+        return complete;
+    }
+    
+    /**
+     * Obtains the number of style maps that have not been scanned in the last {@link #configure(Area)} call
+     * because they produce the same tagged areas as other style maps (see {@link StyleMapFingerprint}).
+     * Their configurations have been obtained from the equivalent scanned style maps.
+     * @return the number of the collapsed style maps
+     */
+    public int getCollapsedStyleMapCount()
+    {
+        return collapsedStyleMaps;
+    }
+    
+    /**
+     * Obtains the number of candidate configurations that have been evicted in the last {@link #configure(Area)}
+     * call because the number of the kept candidates exceeded the capacity (see {@link BestCandidates}).
+     * When nonzero, the best configurations are approximate.
+     * @return the number of the evicted candidates
+     */
+    public int getEvictedCandidateCount()
+    {
+        return evictedCandidates;
+    }
+    
+    public boolean isCachingResolvers()
+    {
+        return cachingResolvers;
+    }
+
+    /**
+     * Enables the style resolvers that compute the tags of each area only once (see {@link CachingStyleResolver}).
+     * This is disabled by default.
+     * @param cachingResolvers {@code true} for using the caching resolvers
+     */
+    public void setCachingResolvers(boolean cachingResolvers)
+    {
+        this.cachingResolvers = cachingResolvers;
+    }
+    
     @Override
     public String toString()
     {
@@ -330,13 +462,17 @@ public class AttributeGroupMatcher extends BaseMatcher
     //===========================================================================================================
     
     /**
-     * Checks the possible configurations on a list of areas and chooses the best ones. 
+     * Checks the possible configurations on a list of areas and chooses the best ones. When a time limit
+     * or a maximal number of evaluations is set, the most promising configurations are checked first
+     * and the scan may stop before all the configurations are checked
+     * (see {@link #isConfigurationComplete()}).
      * @param areas
      */
     public void configure(Area root)
     {
+        final long deadline = (timeLimit > 0) ? System.currentTimeMillis() + timeLimit : 0;
         //initial chunks source
-        ChunksSource source = createBaseChunksSource(root, null);
+        ChunksSource source = createBaseChunksSource(root, null, null);
         //create attribute lists and blacklists
         scanAttributes();
         //create initial pattern analyzer
@@ -353,7 +489,7 @@ public class AttributeGroupMatcher extends BaseMatcher
             log.debug("Styles {}: {}", attrs.get(i).getTag(), styleGenerator.getStyleStats().get(i));
         }
         
-        best = scanDisambiguations(root, styleGenerator);
+        best = scanDisambiguations(root, styleGenerator, deadline);
         /*for (MatcherConfiguration conf : best)
             log.debug("Best:{}", conf);*/
         System.gc();
@@ -377,8 +513,8 @@ public class AttributeGroupMatcher extends BaseMatcher
         {
             log.info("Using conf {}", usedConf);
             StyleAnalyzer sa = new StyleAnalyzerFixed(getCompleteUsedStyleMap());
-            StyleResolver dis = new StyleResolver(sa, MIN_TAG_SUPPORT_MATCH);
-            ChunksSource source = createSpecificChunksSource(root, usedConf, dis, null);
+            StyleResolver dis = createStyleResolver(sa, MIN_TAG_SUPPORT_MATCH, new TagRegistry());
+            ChunksSource source = createSpecificChunksSource(root, usedConf, dis, null, null);
             Map<Tag, Set<Area>> tagAreas = createAttrTagMap(source.getAreas(), dis);
             
             Collection<Match> result = match(source, dis, tagAreas);
@@ -396,7 +532,7 @@ public class AttributeGroupMatcher extends BaseMatcher
         else
         {
             Map<Tag, Collection<Match>> depMatches = getDependencyMatches(source, dis, tagAreas);
-            MatchResult result = findMatches(usedConf, source.getPA(), dis, tagAreas, depMatches);
+            MatchResult result = findMatches(usedConf, source.getPA(), dis, tagAreas, depMatches, null);
             if (getKeyAttr() != null)
                 result.groupByKey(getKeyAttr().getTag());
             //result.dumpMatchAverages();
@@ -409,8 +545,8 @@ public class AttributeGroupMatcher extends BaseMatcher
         if (usedSource == null)
         {
             StyleAnalyzer sa = new StyleAnalyzerFixed(getCompleteUsedStyleMap());
-            StyleResolver dis = new StyleResolver(sa, MIN_TAG_SUPPORT_MATCH);
-            usedSource = createSpecificChunksSource(root, usedConf, dis, null);
+            StyleResolver dis = createStyleResolver(sa, MIN_TAG_SUPPORT_MATCH, new TagRegistry());
+            usedSource = createSpecificChunksSource(root, usedConf, dis, null, null);
         }
         return usedSource;
     }
@@ -419,145 +555,389 @@ public class AttributeGroupMatcher extends BaseMatcher
     
     /**
      * Scans all possible configurations and finds the ones that cover the largest number of areas.
+     * When the parallelism is greater than 1, the style maps, the connection patterns and the hinted
+     * configurations are scanned in parallel using a fork-join pool. The result is the same as for
+     * the sequential scan. Only the best candidate configurations are kept during the scan.
+     * The style maps are created in batches in the order of their support so that the scan
+     * with a limited budget scans the style maps with the greatest support first and it does not need
+     * to create the remaining ones. The order of the resulting configurations does not depend on the scan order.
+     * @param deadline the time when the scan should be stopped or 0 for no deadline
      * @return The list of configurations that cover the larhest number of areas.
      */
-    private List<MatcherConfiguration> scanDisambiguations(Area root, StyleGenerator styleGenerator)
+    private List<MatcherConfiguration> scanDisambiguations(Area root, StyleGenerator styleGenerator, long deadline)
     {
-        //generate supported styleMaps
-        List<Map<Tag, AreaStyle>> styleMaps = styleGenerator.generateStyleMaps(MIN_SUPPORT_STYLE);
-        log.debug("{} style configurations", styleMaps.size());
+        //enumerate supported styleMaps, most supported first
+        StyleMapEnumerator styleMaps = styleGenerator.enumerateStyleMaps(MIN_SUPPORT_STYLE);
+        log.debug("{} style configurations", styleMaps.getCount());
         
-        ConfigurationRegistry registry = new ConfigurationRegistry();
-        ChunksCache cache = USE_CHUNKS_CACHE ? new ChunksCache() : null;
-        MatchStatistics stats = new MatchStatistics();
-        MatchResult bestMatch = null;
-        List<MatcherConfiguration> all = new ArrayList<>();
-        int styleCnt = 0;
-        int skipCnt = 0;
-        //test the individual style maps
-        for (Map<Tag, AreaStyle> styleMap : styleMaps)
-        {
-            if (tconf != null)
+        ScanContext ctx = new ScanContext(root, styleMaps.getCount(), deadline, maxEvaluations);
+        final boolean collapse = USE_STYLE_MAP_FINGERPRINTS && tconf == null;
+        final List<Area> probes = collapse ? getFingerprintProbes(ctx) : null;
+        Map<StyleMapFingerprint, StyleMapScan> fingerprints = new HashMap<>();
+        List<CollapsedStyleMap> collapsed = new ArrayList<>();
+        ForkJoinPool pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+        try {
+            while (styleMaps.hasNext() && !ctx.isExhausted())
             {
-                if (!tconf.getStyleMap().equals(styleMap))
-                    continue;
-            }
-            
-            StyleAnalyzer sa = new StyleAnalyzerFixed(getCompleteStyleMap(styleMap));
-            StyleResolver dis = new StyleResolver(sa, MIN_TAG_SUPPORT_TRAIN);
-            ChunksSource styledSource = createSpecificChunksSource(root, null, dis, cache);
-            PatternGenerator patternGenerator = new PatternGenerator(this, styledSource.getPA());
-            
-            //create new pattern generator, generate connection patterns, create configurations, test configurations
-            int patternCnt = 0;
-            Set<ConnectionPattern> patterns = patternGenerator.generateConnectionPatterns(MIN_SUPPORT_RELATIONS);
-            for (ConnectionPattern conns : patterns)
-            {
-                MatcherConfiguration conf = new MatcherConfiguration(styleMap, conns, null);
-                
-                if (tconf != null)
+                List<StyleMapScan> tasks = new ArrayList<>(STYLE_MAP_BATCH_SIZE);
+                while (tasks.size() < STYLE_MAP_BATCH_SIZE && styleMaps.hasNext())
                 {
-                    if (!tconf.equals(conf))
-                        continue;
-                }
-                
-                if (registry.findEquivalent(conf) != null)
-                {
-                    log.debug("{} is equivalent to {}, skipping", conf, registry.findEquivalent(conf));
-                    skipCnt++;
-                    continue;
-                }
-                registry.add(conf);
-                
-                log.debug("Checking conf {}/{} {}/{}: {}", styleCnt, styleMaps.size(), patternCnt, patterns.size(), conf);
-                MatchResult match = evaluateConfiguration(conf, styledSource, dis, stats);
-                if (bestMatch == null || bestMatch.getScore().compareTo(match.getScore()) < 0)
-                    bestMatch = match;
-                log.debug("Result {}", match);
-                
-                if (match.getMatches().size() > 0)
-                {
-                    all.add(conf);
-                    
-                    //infer hints and test different hint combinations
-                    List<MatcherConfiguration> iconfs = createConfigurationsWithHints(conf, match, dis);
-                    for (MatcherConfiguration iconf : iconfs)
-                    {
-                        log.debug("Checking iconf {}/{} {}/{}: {}", styleCnt, styleMaps.size(), patternCnt, patterns.size(), iconf);
-                        ChunksSource isource = createSpecificChunksSource(root, iconf, dis, cache);
-                        MatchResult imatch = evaluateConfiguration(iconf, isource, dis, stats);
-                        if (bestMatch == null || bestMatch.getScore().compareTo(imatch.getScore()) < 0)
-                            bestMatch = imatch;
-                        log.debug("Result {}", imatch);
-                        if (imatch.getMatches().size() > 0)
-                            all.add(iconf);
-                    }
+                    final Map<Tag, AreaStyle> styleMap = styleMaps.next();
+                    tasks.add(new StyleMapScan(ctx, styleMap, styleMaps.getIndex()));
                 }
-                
-                patternCnt++;
-                //if (i > 100) break;
-                
-            }            
-            styleCnt++;
+                if (collapse)
+                    tasks = collapseEquivalentStyleMaps(tasks, probes, fingerprints, collapsed, pool);
+                scanStyleMaps(tasks, pool);
+            }
+        } finally {
+            if (pool != null)
+                pool.shutdown();
         }
         
-        log.debug("{} configurations tested", all.size());
-        log.debug("{} duplicate configurations skipped", skipCnt);
+        final BestCandidates candidates = ctx.mergeCandidates();
+        //the collapsed style maps produce the same configurations as their representatives
+        for (CollapsedStyleMap cmap : collapsed)
+            candidates.addEquivalent(cmap.representative, cmap.styleMap, cmap.styleIndex);
+        
+        complete = !ctx.stopped && !styleMaps.hasNext();
+        collapsedStyleMaps = collapsed.size();
+        evictedCandidates = candidates.getEvicted();
+        if (!complete)
+            log.info("Configuration scan stopped after {} evaluations, the results may be incomplete", ctx.evalCnt.get());
+        log.debug("{} configurations tested", candidates.getAdded());
+        if (evictedCandidates > 0)
+            log.warn("{} candidate configurations evicted over the capacity, the best configurations are approximate", evictedCandidates);
+        log.debug("{} duplicate configurations skipped", ctx.skipCnt.get());
+        if (USE_STYLE_MAP_FINGERPRINTS)
+            log.debug("{} equivalent style maps collapsed", collapsedStyleMaps);
+        if (USE_SCORE_BOUNDS)
+            log.debug("{} configurations pruned using the score bounds", ctx.pruneCnt.get());
         if (USE_CHUNKS_CACHE)
         {
+            final ChunksCache cache = ctx.cache;
             log.debug("{} entries in the cache ({} chunks), {} reads, {} hits", cache.size(), cache.getChunkCount(), cache.getReads(), cache.getHits());
-            cache = null;
+            log.debug("Cache stages: {}", cache);
         }
+        if (USE_PREFIX_CACHE)
+            log.debug("Pattern prefixes: {}", ctx.prefixCache);
+        log.debug("Style maps: {}", ctx.styleMapCache);
+        if (USE_OCCURRENCE_CACHE)
+            log.debug("Tag occurrences: {}", ctx.occurrenceCache);
         
         //select the best configurations
-        List<MatcherConfiguration> best = new ArrayList<>();
-        if (bestMatch != null)
+        return candidates.getBest();
+    }
+    
+    /**
+     * Scans a batch of style maps.
+     * @param tasks the scans of the individual style maps
+     * @param pool the pool used for the parallel scan or {@code null} for a sequential scan
+     */
+    private void scanStyleMaps(List<StyleMapScan> tasks, ForkJoinPool pool)
+    {
+        //test the individual style maps
+        if (pool != null)
+            pool.invoke(new ScanGroup(tasks));
+        else
+            new ScanGroup(tasks).invoke();
+    }
+    
+    /**
+     * Prepares the style resolvers for the style maps and removes the style maps whose tagged areas
+     * are equal to the ones of an already scanned style map with a lower style index. The configurations
+     * of the removed style maps are then obtained from the scanned one (see
+     * {@link BestCandidates#addEquivalent(Map, Map, int)}). When the equivalent style map has a greater index,
+     * the style map is scanned and it replaces the equivalent one for the following style maps.
+     * @param tasks the scans of the individual style maps
+     * @param probes the probe areas used for the fingerprints
+     * @param fingerprints the representative scans of the fingerprints found so far, updated with the new ones
+     * @param collapsed the list of the removed style maps, the new ones are added
+     * @param pool the pool used for the parallel preparation or {@code null}
+     * @return the remaining scans
+     */
+    private List<StyleMapScan> collapseEquivalentStyleMaps(List<StyleMapScan> tasks, List<Area> probes,
+            Map<StyleMapFingerprint, StyleMapScan> fingerprints, List<CollapsedStyleMap> collapsed, ForkJoinPool pool)
+    {
+        List<StyleMapPreparation> preps = new ArrayList<>(tasks.size());
+        for (StyleMapScan task : tasks)
+            preps.add(new StyleMapPreparation(task, probes));
+        if (pool != null)
+            pool.invoke(new ScanGroup(preps));
+        else
+            new ScanGroup(preps).invoke();
+        
+        //decide in the order of the style indices so that the lowest index represents the batch
+        List<StyleMapScan> sorted = new ArrayList<>(tasks);
+        sorted.sort((t1, t2) -> Integer.compare(t1.styleIndex, t2.styleIndex));
+        Set<StyleMapScan> removed = new HashSet<>();
+        for (StyleMapScan task : sorted)
         {
-            //sort by result score
-            all.sort(new Comparator<MatcherConfiguration>()
+            if (task.fingerprint != null) //not prepared when the budget is exhausted
             {
-                @Override
-                public int compare(MatcherConfiguration o1, MatcherConfiguration o2)
+                final StyleMapScan eq = fingerprints.get(task.fingerprint);
+                if (eq != null && eq.styleIndex < task.styleIndex)
                 {
-                    MatchResultScore r1 = o1.getResult();
-                    MatchResultScore r2 = o2.getResult();
-                    if (r1 == null && r2 == null)
-                        return 0;
-                    else if (r1 == null)
-                        return 1;
-                    else if (r2 == null)
-                        return -1;
-                    else
-                        return r2.compareTo(r1);
+                    log.debug("Style map {} is equivalent to {}, collapsing", task.styleMap, eq.styleMap);
+                    collapsed.add(new CollapsedStyleMap(task.styleMap, task.styleIndex, eq.styleMap));
+                    removed.add(task);
+                    task.release();
                 }
-            });
+                else
+                    fingerprints.put(task.fingerprint, task);
+            }
+        }
+        List<StyleMapScan> ret = new ArrayList<>(tasks.size());
+        for (StyleMapScan task : tasks)
+        {
+            if (!removed.contains(task))
+                ret.add(task);
+        }
+        return ret;
+    }
+    
+    /**
+     * Creates the list of the probe areas for the style map fingerprints (see {@link StyleMapFingerprint}).
+     * The probes are the page areas and the chunks of the page with the dependency hints applied. Only the
+     * areas that have some tags with the minimal support are included; the style resolvers assign no tags
+     * to the remaining areas.
+     * @param ctx the scan context
+     * @return the list of the probe areas
+     */
+    private List<Area> getFingerprintProbes(ScanContext ctx)
+    {
+        List<Area> ret = new ArrayList<>();
+        addTaggedAreas(ctx.root, ret);
+        ChunksSource source = createBaseChunksSource(ctx.root, ctx.cache, ctx.occurrenceCache);
+        Map<Tag, List<PresentationHint>> depHints = getDependencyHints();
+        for (Tag tag : getTagsWithDependencies())
+        {
+            List<PresentationHint> hints = depHints.get(tag);
+            if (hints != null)
+            {
+                for (PresentationHint hint : hints)
+                    source.addHint(tag, hint);
+            }
+        }
+        for (Area a : source.getAreas())
+        {
+            if (!a.getSupportedTags(MIN_TAG_SUPPORT_TRAIN).isEmpty())
+                ret.add(a);
+        }
+        log.debug("{} fingerprint probe areas", ret.size());
+        return ret;
+    }
+    
+    private void addTaggedAreas(Area root, List<Area> dest)
+    {
+        if (!root.getSupportedTags(MIN_TAG_SUPPORT_TRAIN).isEmpty())
+            dest.add(root);
+        for (int i = 0; i < root.getChildCount(); i++)
+            addTaggedAreas(root.getChildAt(i), dest);
+    }
+    
+    /**
+     * Scans a single style map: generates the connection patterns for the style map and evaluates
+     * the corresponding configurations.
+     * @param ctx the scan context
+     * @param styleMap the style map to be used
+     * @param styleIndex the index of the style map
+     * @param dis the style resolver already created for the style map or {@code null}
+     */
+    private void scanStyleMap(ScanContext ctx, Map<Tag, AreaStyle> styleMap, int styleIndex, StyleResolver dis)
+    {
+        if (tconf != null)
+        {
+            if (!tconf.getStyleMap().equals(styleMap))
+                return;
+        }
+        if (ctx.stopIfExhausted())
+            return;
+        
+        if (dis == null)
+            dis = createStyleResolver(new StyleAnalyzerFixed(getCompleteStyleMap(styleMap), ctx.styleMapCache), MIN_TAG_SUPPORT_TRAIN,
+                    ctx.tagRegistry);
+        ChunksSource styledSource = createSpecificChunksSource(ctx.root, null, dis, ctx.cache, ctx.occurrenceCache);
+        PatternGenerator patternGenerator = new PatternGenerator(this, styledSource.getPA());
+        
+        //create new pattern generator, generate connection patterns, create configurations
+        //(this also initializes the relation analyzer before it is shared by the configuration scans)
+        Set<ConnectionPattern> patterns = patternGenerator.generateConnectionPatterns(MIN_SUPPORT_RELATIONS);
+        List<ConfigurationScan> tasks = new ArrayList<>(patterns.size());
+        for (ConnectionPattern conns : patterns)
+        {
+            MatcherConfiguration conf = new MatcherConfiguration(styleMap, conns, null);
             
-            //choose first few
-            best = all.subList(0, Math.min(BEST_CANDIDATE_LIMIT, all.size()));
+            if (tconf != null)
+            {
+                if (!tconf.equals(conf))
+                    continue;
+            }
             
-            /*for (MatcherConfiguration conf : all)
+            MatcherConfiguration eq = ctx.registry.addIfUnique(conf);
+            if (eq != null)
             {
-                if (conf.getResult() != null && conf.getResult().compareTo(bestMatch) == 0)
-                    best.add(conf);
-            }*/
+                log.debug("{} is equivalent to {}, skipping", conf, eq);
+                ctx.skipCnt.incrementAndGet();
+                continue;
+            }
+            
+            final String pos = styleIndex + "/" + ctx.styleCnt + " " + tasks.size() + "/" + patterns.size();
+            final int[] position = new int[] {styleIndex, tasks.size(), 0};
+            tasks.add(new ConfigurationScan(ctx, conf, styledSource, dis, position, pos));
+        }
+        if (ctx.isLimited())
+        {
+            //most promising patterns first
+            final PatternCounter<TagConnection> cnt = new PatternCounter<>(styledSource.getPA().getTagConnections(), 1.0f);
+            final Map<ConfigurationScan, Float> support = new HashMap<>(tasks.size());
+            for (ConfigurationScan task : tasks)
+                support.put(task, getPatternSupport(task.conf.getPattern(), cnt));
+            tasks.sort(new Comparator<ConfigurationScan>()
+            {
+                @Override
+                public int compare(ConfigurationScan o1, ConfigurationScan o2)
+                {
+                    return Float.compare(support.get(o2), support.get(o1));
+                }
+            });
         }
+        //test the configurations
+        new ScanGroup(tasks).compute();
+    }
+    
+    /**
+     * Evaluates a configuration. When some matches are found, the hinted variants of the configuration
+     * are evaluated too.
+     * @param ctx the scan context
+     * @param conf the configuration to be evaluated
+     * @param styledSource the chunks source created for the configuration style map
+     * @param dis the disambiguator for the configuration style map
+     * @param position position of the configuration in the scan (style map, pattern and hint index)
+     * @param pos position of the configuration in the scan (for logging)
+     */
+    private void scanConfiguration(ScanContext ctx, MatcherConfiguration conf, ChunksSource styledSource, StyleResolver dis, int[] position, String pos)
+    {
+        if (!ctx.startEvaluation())
+            return;
+        log.debug("Checking conf {}: {}", pos, conf);
+        Map<Tag, Set<Area>> tagAreas = createAttrTagMap(styledSource.getAreas(), dis);
+        MatchResult match = evaluateConfiguration(conf, styledSource, dis, tagAreas, ctx.stats, ctx.prefixCache);
+        log.debug("Result {}", match);
         
-        return best;
+        if (match.getMatches().size() > 0)
+        {
+            ctx.addCandidate(conf, position);
+            //infer hints and test different hint combinations
+            List<MatcherConfiguration> iconfs = createConfigurationsWithHints(conf, match, dis);
+            List<HintedConfigurationScan> tasks = new ArrayList<>(iconfs.size());
+            for (MatcherConfiguration iconf : iconfs)
+            {
+                final int[] ipos = new int[] {position[0], position[1], tasks.size() + 1};
+                tasks.add(new HintedConfigurationScan(ctx, iconf, dis, ipos, pos));
+            }
+            new ScanGroup(tasks).compute();
+        }
+    }
+    
+    /**
+     * Evaluates a hinted configuration.
+     * @param ctx the scan context
+     * @param iconf the configuration to be evaluated
+     * @param dis the disambiguator for the configuration style map
+     * @param position position of the configuration in the scan (style map, pattern and hint index)
+     * @param pos position of the configuration in the scan (for logging)
+     */
+    private void scanHintedConfiguration(ScanContext ctx, MatcherConfiguration iconf, StyleResolver dis, int[] position, String pos)
+    {
+        if (ctx.stopIfExhausted())
+            return;
+        log.debug("Checking iconf {}: {}", pos, iconf);
+        ChunksSource isource = createSpecificChunksSource(ctx.root, iconf, dis, ctx.cache, ctx.occurrenceCache);
+        Map<Tag, Set<Area>> tagAreas = createAttrTagMap(isource.getAreas(), dis);
+        if (USE_SCORE_BOUNDS && isOutranked(ctx, iconf, isource, tagAreas))
+        {
+            log.debug("Pruned: the score bound is below the best configurations");
+            ctx.pruneCnt.incrementAndGet();
+            return;
+        }
+        if (!ctx.startEvaluation())
+            return;
+        MatchResult imatch = evaluateConfiguration(iconf, isource, dis, tagAreas, ctx.stats, ctx.prefixCache);
+        log.debug("Result {}", imatch);
+        if (imatch.getMatches().size() > 0)
+            ctx.addCandidate(iconf, position);
+    }
+    
+    /**
+     * Estimates the support of a connection pattern as the minimal number of the corresponding
+     * tag connections found in the page.
+     * @param pattern the connection pattern
+     * @param cnt the tag connection counter for the page
+     * @return the estimated support
+     */
+    private float getPatternSupport(ConnectionPattern pattern, PatternCounter<TagConnection> cnt)
+    {
+        float ret = Float.MAX_VALUE;
+        for (TagConnection con : pattern)
+            ret = Math.min(ret, cnt.getWeight(con));
+        return (ret == Float.MAX_VALUE) ? 0.0f : ret;
+    }
+    
+    /**
+     * Checks whether a configuration certainly cannot get among the best configurations found so far.
+     * The upper bound of the configuration score is estimated from the number of tagged areas, 
+     * the maximal weights of the used relations and the hint score of the configuration.
+     * The base configurations (without hints) are never pruned because their hinted variants
+     * are derived from their match results.
+     * @param ctx the scan context
+     * @param conf the configuration to check
+     * @param source the chunks source for the configuration
+     * @param tagAreas the tag to area mapping obtained for the source
+     * @return {@code true} when the configuration may be skipped
+     */
+    private boolean isOutranked(ScanContext ctx, MatcherConfiguration conf, ChunksSource source, Map<Tag, Set<Area>> tagAreas)
+    {
+        //the number of matched areas cannot exceed the number of tagged areas
+        //(the tags of dependencies are included since the dependency matches are included)
+        Set<Area> tagged = new HashSet<>();
+        if (dependencies == null || dependencies.isEmpty())
+        {
+            for (Tag tag : conf.getTags())
+            {
+                final Set<Area> tareas = tagAreas.get(tag);
+                if (tareas != null)
+                    tagged.addAll(tareas);
+            }
+        }
+        else
+        {
+            for (Set<Area> tareas : tagAreas.values())
+                tagged.addAll(tareas);
+        }
+        final int maxAreas = tagged.size();
+        //try the trivial weight bound first in order to avoid the relation analysis when possible
+        if (ctx.isOutranked(maxAreas, MatchResultScore.getAreaIndependentScoreBound(1.0f, conf.getHintScore())))
+            return true;
+        //the weights of the matches cannot exceed the maximal connection weight of the used relations
+        float maxWeight = 0.0f;
+        for (TagConnection con : conf.getPattern())
+            maxWeight = Math.max(maxWeight, source.getPA().getMaxWeight(con.getRelation()));
+        return ctx.isOutranked(maxAreas, MatchResultScore.getAreaIndependentScoreBound(maxWeight, conf.getHintScore()));
     }
 
-    private MatchResult evaluateConfiguration(MatcherConfiguration conf, ChunksSource source, StyleResolver dis, MatchStatistics stats)
+    private MatchResult evaluateConfiguration(MatcherConfiguration conf, ChunksSource source, StyleResolver dis, Map<Tag, Set<Area>> tagAreas,
+            MatchStatistics stats, PatternPrefixCache prefixCache)
     {
-        Map<Tag, Set<Area>> tagAreas = createAttrTagMap(source.getAreas(), dis);
         Map<Tag, Collection<Match>> depMatches = getDependencyMatches(source, dis, tagAreas);
         
-        MatchResult match = findMatches(conf, source.getPA(), dis, tagAreas, depMatches);
+        MatchResult match = findMatches(conf, source.getPA(), dis, tagAreas, depMatches, prefixCache);
         //check whether the match is consistent
         ConnectionPattern constraints = inferConsistencyConstraints(source.getPA(), conf, match);
         if (constraints.size() > 0)
         {
             //some more constraints are necessary for ensuring the match consistency
             conf.setConstraints(constraints);
-            match = findMatches(conf, source.getPA(), dis, tagAreas, depMatches);
+            match = findMatches(conf, source.getPA(), dis, tagAreas, depMatches, prefixCache);
         }
         match.setRelationProbabilitySource(new HintedRelationProbabilitySource(conf));
         MatchResultScore score = match.evaluateScore();
@@ -567,15 +947,31 @@ public class AttributeGroupMatcher extends BaseMatcher
         return match;
     }
     
+    /**
+     * Creates a style resolver for the given style analyzer. The caching resolver is used when enabled.
+     * @param sa the style analyzer
+     * @param minSupport the minimal tag support
+     * @param registry the tag registry used by the resolver
+     * @return the new resolver
+     */
+    private StyleResolver createStyleResolver(StyleAnalyzer sa, float minSupport, TagRegistry registry)
+    {
+        if (cachingResolvers)
+            return new CachingStyleResolver(sa, minSupport, false, registry);
+        else
+            return new StyleResolver(sa, minSupport, false, registry);
+    }
+    
     /**
      * Creates an initial chunks source used for infering the basic styles.
      * @param root the root of the source area tree to be processed
      * @param cache the extracted chunks cache or {@code null} when no cache should be used 
+     * @param occurrenceCache the tag occurrence cache or {@code null} when no cache should be used
      * @return the chunks source
      */
-    private ChunksSource createBaseChunksSource(Area root, ChunksCache cache)
+    private ChunksSource createBaseChunksSource(Area root, ChunksCache cache, TagOccurrenceCache occurrenceCache)
     {
-        ChunksSource ret = new PresentationBasedChunksSource(root, MIN_TAG_SUPPORT_MATCH, cache);
+        ChunksSource ret = new PresentationBasedChunksSource(root, MIN_TAG_SUPPORT_MATCH, cache, occurrenceCache);
         return ret;
     }
     
@@ -585,11 +981,12 @@ public class AttributeGroupMatcher extends BaseMatcher
      * @param root the root of the source area tree to be processed
      * @param dis the disambiguator used for filtering the chunks based on their style 
      * @param cache the extracted chunks cache or {@code null} when no cache should be used 
+     * @param occurrenceCache the tag occurrence cache or {@code null} when no cache should be used
      * @return the resulting chunks source
      */
-    private ChunksSource createStyledChunksSource(Area root, StyleResolver dis, ChunksCache cache)
+    private ChunksSource createStyledChunksSource(Area root, StyleResolver dis, ChunksCache cache, TagOccurrenceCache occurrenceCache)
     {
-        ChunksSource ret = new PresentationBasedChunksSource(root, MIN_TAG_SUPPORT_MATCH, cache);
+        ChunksSource ret = new PresentationBasedChunksSource(root, MIN_TAG_SUPPORT_MATCH, cache, occurrenceCache);
         //Add style hints
         for (Tag tag : getTagsWithDependencies())
         {
@@ -606,24 +1003,19 @@ public class AttributeGroupMatcher extends BaseMatcher
      * no hints should be used for the current matcher (only the hints of the dependency matchers
      * are used)
      * @param dis dis the disambiguator used for filtering the chunks based on their style
+     * @param cache the extracted chunks cache or {@code null} when no cache should be used 
+     * @param occurrenceCache the tag occurrence cache or {@code null} when no cache should be used
      * @return the resulting chunks source
      */
-    private ChunksSource createSpecificChunksSource(Area root, MatcherConfiguration conf, StyleResolver dis, ChunksCache cache)
+    private ChunksSource createSpecificChunksSource(Area root, MatcherConfiguration conf, StyleResolver dis, ChunksCache cache,
+            TagOccurrenceCache occurrenceCache)
     {
-        ChunksSource ret = createStyledChunksSource(root, dis, cache);
+        ChunksSource ret = createStyledChunksSource(root, dis, cache, occurrenceCache);
         //unify the hints with the dependency hints
         Map<Tag, List<PresentationHint>> allHints = new HashMap<>();
         if (conf != null && conf.getHints() != null)
             allHints.putAll(conf.getHints());
-        if (dependencies != null)
-        {
-            for (AttributeGroupMatcher dep : dependencies)
-            {
-                Map<Tag, List<PresentationHint>> depHints = dep.getUsedConf().getHints();
-                if (depHints != null)
-                    allHints.putAll(depHints);
-            }
-        }
+        allHints.putAll(getDependencyHints());
         //pass the hints to the chunks source
         if (!allHints.isEmpty())
         {
@@ -653,6 +1045,25 @@ public class AttributeGroupMatcher extends BaseMatcher
         return ret;
     }
     
+    /**
+     * Obtains the hints used by the dependency matchers.
+     * @return the map of the hints for the individual tags
+     */
+    private Map<Tag, List<PresentationHint>> getDependencyHints()
+    {
+        Map<Tag, List<PresentationHint>> ret = new HashMap<>();
+        if (dependencies != null)
+        {
+            for (AttributeGroupMatcher dep : dependencies)
+            {
+                Map<Tag, List<PresentationHint>> depHints = dep.getUsedConf().getHints();
+                if (depHints != null)
+                    ret.putAll(depHints);
+            }
+        }
+        return ret;
+    }
+    
     private List<MatcherConfiguration> createConfigurationsWithHints(MatcherConfiguration src, MatchResult match, StyleResolver dis)
     {
         List<MatcherConfiguration> ret = new ArrayList<>();
@@ -753,237 +1164,37 @@ public class AttributeGroupMatcher extends BaseMatcher
      * Checks how many visual areas are covered with the given configuration.
      * @param conf The configuration to check.
      * @param dis The disambiguator for mapping areas to tags.
+     * @param prefixCache the cache of the pattern prefixes shared among the configurations or {@code null}.
+     * When used, the tag areas must be obtained for the areas of the relation analyzer using the disambiguator.
      * @return The number of visual areas that match the given configuration.
      */
-    private MatchResult findMatches(MatcherConfiguration conf, RelationAnalyzer pa, StyleResolver dis, Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
-    {
-        Set<Area> matchedAreas = new HashSet<Area>();
-        List<TagConnection> pairs = new ArrayList<>(conf.getPattern()); //pairs to go
-        Set<Match> matches = new HashSet<>();
-        TagConnection curPair = pairs.remove(0);
-        Collection<Match> deps = depMatches.get(curPair.getA2());
-        if (deps != null)
-        {
-            for (Match dmatch : deps)
-            {
-                if (dmatch.isDisjointWith(matchedAreas)) //the match does not contain any already matched area
-                {
-                    for (Area a : dmatch.get(curPair.getA2()))
-                    {
-                        Match match = new Match(); 
-                        //match.putSingle(curPair.getA2(), a);
-                        match.addSubMatch(dmatch);
-                        recursiveFindMatchesFor(pa, a, curPair, pairs, match, conf.getConstraints(), matches, matchedAreas, dis, tagAreas, depMatches);
-                    }
-                }
-            }
-        }
-        else
-        {
-            Set<Area> srcSet = tagAreas.get(curPair.getA2());
-            //System.out.println("src set: " + srcSet.size());
-            for (Area a : srcSet)
-            {
-                if (!isAlreadyUsed(a, matchedAreas))
-                {
-                    Match match = new Match(); 
-                    match.putSingle(curPair.getA2(), a);
-                    recursiveFindMatchesFor(pa, a, curPair, pairs, match, conf.getConstraints(), matches, matchedAreas, dis, tagAreas, depMatches);
-                }
-            }
-        }
-        return new MatchResult(matches, matchedAreas, pa);
-    }
-    
-    private boolean recursiveFindMatchesFor(RelationAnalyzer pa, Area a, TagConnection curPair, List<TagConnection> pairs, Match curMatch, ConnectionPattern constraints,
-            Collection<Match> matches, Set<Area> matchedAreas, StyleResolver dis, Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
+    private MatchResult findMatches(MatcherConfiguration conf, RelationAnalyzer pa, StyleResolver dis, Map<Tag, Set<Area>> tagAreas,
+            Map<Tag, Collection<Match>> depMatches, PatternPrefixCache prefixCache)
     {
-        final boolean a1Many = isTagMany(curPair.getA1());
-        final boolean a2Many = isTagMany(curPair.getA2());
-        if (a2Many)
-            log.error("{} is MANY in {}); this should not happen!", curPair.getA2(), curPair);
-        boolean anyMatched = false;
-        Collection<Match> deps = depMatches.get(curPair.getA1());
-        /*if (curPair.toString().contains("session"))
-            System.out.println("jo!");*/
-        List<AreaConnection> inrel = getAreasInBestRelation(pa, a, curPair.getRelation(), curPair.getA2(), curPair.getA1(), a1Many, dis);
-        if (deps != null)
-        {
-            //look for dependency matches related to the current area
-            for (Match match : deps)
-            {
-                if (match.isDisjointWith(matchedAreas) && match.isDisjointWith(curMatch))
-                {
-                    final List<Area> ref = match.get(curPair.getA1());
-                    //is some of the referenced areas in the relationship?
-                    for (AreaConnection con : inrel)
-                    {
-                        if (ref.contains(con.getA1()))
-                        {
-                            Area b = con.getA1();
-                            boolean mayUse = a1Many || !isAlreadyUsed(b, matchedAreas); //check repeated match of a single area depending on cardinality (is B already assigned to another A)
-                            if (mayUse && !curMatch.containsArea(b))
-                            {
-                                //create the new candidate match
-                                Match nextMatch = new Match(curMatch);
-                                //nextMatch.putSingle(curPair.getA1(), b);
-                                nextMatch.addSubMatch(match);
-                                nextMatch.addAreaConnection(curPair, con, a1Many);
-                                
-                                anyMatched |= tryNewMatch(pa, nextMatch, pairs, constraints, matches, matchedAreas,
-                                        dis, tagAreas, depMatches);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        else
+        if (USE_JOIN_SEARCH && !usesDependencies(conf.getPattern(), depMatches))
         {
-            Set<Area> destSet = tagAreas.get(curPair.getA1());
-            List<Area> addedMatches = new ArrayList<>();
-            List<AreaConnection> addedConnections = new ArrayList<>();
-            for (AreaConnection con : inrel)
-            {
-                Area b = con.getA1();
-                boolean mayUse = a2Many || !isAlreadyUsed(b, matchedAreas); //check repeated match of a single area depending on cardinality (is B already assigned to another A)
-                if (mayUse && destSet.contains(b) && !curMatch.overlapsArea(b))
-                {
-                    addedMatches.add(b);
-                    addedConnections.add(con);
-                    if (!a1Many)
-                        break; //only a single match allowed
-                }
-            }
-            if (!addedMatches.isEmpty())
-            {
-                //create the new candidate match
-                Match nextMatch = new Match(curMatch);
-                nextMatch.put(curPair.getA1(), addedMatches);
-                for (AreaConnection con : addedConnections)
-                    nextMatch.addAreaConnection(curPair, con, false);
-                
-                anyMatched |= tryNewMatch(pa, nextMatch, pairs, constraints, matches, matchedAreas,
-                        dis, tagAreas, depMatches);
-            }
-        }
-        return anyMatched;
-    }
-
-    private boolean tryNewMatch(RelationAnalyzer pa, Match nextMatch,
-            List<TagConnection> pairs, ConnectionPattern constraints, Collection<Match> matches,
-            Set<Area> matchedAreas, StyleResolver dis, Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
-    {
-        //test if the match is complete
-        boolean matched = false;
-        if (!pairs.isEmpty()) //some pairs are remaining -- continue recursively
-        {
-            //find the next pair
-            List<TagConnection> nextPairs = new ArrayList<>(pairs);
-            TagConnection nextPair = null;
-            for (int i = 0; nextPair == null && i < nextPairs.size(); i++)
-            {
-                Tag destTag = nextPairs.get(i).getA2();
-                if (nextMatch.containsKey(destTag)) //found a connected pair
-                    nextPair = nextPairs.remove(i);
-            }
-            if (nextPair != null)
-            {
-                Area seed = nextMatch.getSingle(nextPair.getA2());
-                matched = recursiveFindMatchesFor(pa, seed, nextPair, nextPairs, nextMatch, constraints, matches, matchedAreas, dis, tagAreas, depMatches);
-            }
-            else
-            {
-                log.error("No next pair found but some are remaining?");
-                matched = false;
-            }
+            final JoinMatchSearch search = new JoinMatchSearch(this, conf, pa, dis, tagAreas, prefixCache);
+            if (search.isApplicable())
+                return search.run();
+            log.debug("{} is not a tree pattern, using the depth-first search", conf.getPattern());
         }
-        else //no pairs remaining -- a complete match
+        MatchPlan plan = null;
+        if (USE_MATCH_PLANNER)
         {
-            matched = true;
-            if (constraints == null || matchesConstraints(pa, nextMatch, constraints))
-            {
-                //log.debug("Adding: {}", nextMatch);
-                matches.add(nextMatch);
-                nextMatch.addAllAreasTo(matchedAreas);
-            }
-            else
-                log.debug("Skipping inconsistent match: {}", nextMatch);
+            plan = new MatchPlanner(pa, tagAreas, depMatches).plan(conf.getPattern());
+            log.debug("Using plan {}", plan);
         }
-        
-        return matched;
-    }
-    
-    private boolean isAlreadyUsed(Area a, Collection<Area> matchedAreas)
-    {
-        //return matchedAreas.contains(a);
-        return AreaUtils.areasOverlap(a, matchedAreas, Match.MIN_OVERLAP_PERCENTAGE);
+        return new MatchSearch(this, conf, plan, pa, dis, tagAreas, depMatches).run();
     }
     
-    /**
-     * Obtains the best area connections with the specified second area and the
-     * specified relation. The best connection means that there does not exist  
-     * any better source area for this with the same destination area and a higher weight.
-     * E.g. all areas below {@code a}.
-     * Only the areas with specified tags are taken into account, the tags are inferred using
-     * a disambiguator.
-     * @param pa The relation analyzer used for finding the relations
-     * @param a the area to be used as {@code A2} in the area connections.
-     * @param r the relation to be uses.
-     * @param srcTag the tag required for the source areas (incl. {@code a})
-     * @param destTag the tag required for the destination areas
-     * @param allowMany when set to {@code true}, all 'best' connections will be returned. Otherwise, only the one with the greatest weight will be returned.
-     * @param dis the disambiguator used for assigning the tags to areas
-     * @return the list of best area connections that correspond to the above criteria
-     */
-    private List<AreaConnection> getAreasInBestRelation(RelationAnalyzer pa, Area a, Relation r, Tag srcTag, Tag destTag, boolean allowMany, StyleResolver dis)
+    private boolean usesDependencies(ConnectionPattern pattern, Map<Tag, Collection<Match>> depMatches)
     {
-        Collection<AreaConnection> all = pa.getConnections(null, r, a, -1.0f);
-        //if only a single match is allowed, sort the matches in order to start with the best candidates
-        if (!allowMany)
+        for (TagConnection pair : pattern)
         {
-            List<AreaConnection> clist = (all instanceof List) ? (List<AreaConnection>) all : new ArrayList<>(all);
-            Collections.sort(clist, new Comparator<AreaConnection>()
-            {
-                @Override
-                public int compare(AreaConnection o1, AreaConnection o2)
-                {
-                    if (o1.getWeight() < o2.getWeight())
-                        return 1;
-                    else if (o1.getWeight() > o2.getWeight())
-                        return -1;
-                    else
-                        return 0;
-                }
-            });
-            all = clist;
+            if (depMatches.get(pair.getA1()) != null || depMatches.get(pair.getA2()) != null)
+                return true;
         }
-        //scan the candidates
-        List<AreaConnection> ret = new ArrayList<>(all.size());
-        for (AreaConnection cand : all)
-        {
-            if (dis.getAreaTags(cand.getA1()).contains(destTag))
-            {
-                //find the source nodes that are closer
-                Collection<AreaConnection> better = pa.getConnections(cand.getA1(), r, null, cand.getWeight());
-                boolean foundBetter = false;
-                for (AreaConnection betterCand : better)
-                {
-                    if (dis.getAreaTags(betterCand.getA2()).contains(srcTag))
-                    {
-                        foundBetter = true;
-                        break;
-                    }
-                }
-                if (!foundBetter)
-                {
-                    ret.add(cand); //a1 has no "better" source area, use it
-                    /*if (!allowMany)
-                        break;*/ //we have found the best one but we return all; they will be filtered later
-                }
-            }
-        }
-        return ret;
+        return false;
     }
     
     /**
@@ -1025,7 +1236,7 @@ public class AttributeGroupMatcher extends BaseMatcher
             PatternCounter<Relation> stats = new PatternCounter<>();
             for (Match match : result.getMatches())
             {
-                Set<Relation> rels = getMatchRelations(pa, match, pair.getO1(), pair.getO2());
+                Set<Relation> rels = BaseMatchSearch.getMatchRelations(pa, match, pair.getO1(), pair.getO2());
                 stats.addAll(rels, 1.0f);
             }
             //retain only the most supported matches
@@ -1039,44 +1250,6 @@ public class AttributeGroupMatcher extends BaseMatcher
         return constraints;
     }
     
-    /**
-     * Checks whether the given match complies with the given constraints.
-     * @param pa The relation analyzer used for finding the relations
-     * @param match the match to be checked
-     * @param constraints the constraints
-     * @return {@code true} when the match complies with the constraints, {@code false} otherwise. 
-     */
-    private boolean matchesConstraints(RelationAnalyzer pa, Match match, ConnectionPattern constraints)
-    {
-        for (TagConnection con : constraints)
-        {
-            Set<Relation> found = getMatchRelations(pa, match, con.getA1(), con.getA2());
-            if (!found.contains(con.getRelation()))
-                return false;
-        }
-        return true;
-    }
-    
-    /**
-     * Finds all different relations among two areas in the page that are specified with a particular
-     * match and their tags.
-     * @param pa The relation analyzer used for finding the relations
-     * @param match The match to be used.
-     * @param t1 The tag of the first area.
-     * @param t2 The tag of the second area.
-     * @return A set of relationships among the first and second area that are mapped to {@code t1} and
-     * {@code t2} in the {@code match}.
-     */
-    private Set<Relation> getMatchRelations(RelationAnalyzer pa, Match match, Tag t1, Tag t2)
-    {
-        Area a1 = match.getSingle(t1);
-        Area a2 = match.getSingle(t2);
-        if (a1 != null && a2 != null)
-            return pa.getRelationsFor(a1, a2, -1.0f);
-        else
-            return Collections.emptySet();
-    }
-    
     //===========================================================================================
 
     /**
@@ -1183,6 +1356,314 @@ public class AttributeGroupMatcher extends BaseMatcher
     
     //==============================================================================================
     
+    /**
+     * The state shared by all the scan tasks of a single {@link #scanDisambiguations(Area, StyleGenerator)} call.
+     */
+    private class ScanContext
+    {
+        final Area root;
+        final int styleCnt;
+        final ConfigurationRegistry registry;
+        final ChunksCache cache;
+        final TagOccurrenceCache occurrenceCache;
+        final PatternPrefixCache prefixCache;
+        final CompiledStyleMapCache styleMapCache;
+        final TagRegistry tagRegistry;
+        final MatchStatistics stats;
+        final AtomicInteger skipCnt;
+        final AtomicInteger pruneCnt;
+        final List<BestCandidates> workerCandidates; //the best candidates found by the individual workers
+        final ThreadLocal<BestCandidates> localCandidates;
+        final long deadline;
+        final int maxEvaluations;
+        final AtomicInteger evalCnt;
+        volatile boolean exhausted;
+        volatile boolean stopped; //some work has been skipped because of the exhausted budget
+        
+        public ScanContext(Area root, int styleCnt, long deadline, int maxEvaluations)
+        {
+            this.root = root;
+            this.styleCnt = styleCnt;
+            registry = new ConfigurationRegistry();
+            cache = USE_CHUNKS_CACHE ? new ChunksCache() : null;
+            occurrenceCache = USE_OCCURRENCE_CACHE ? new TagOccurrenceCache() : null;
+            prefixCache = USE_PREFIX_CACHE ? new PatternPrefixCache() : null;
+            styleMapCache = new CompiledStyleMapCache();
+            tagRegistry = new TagRegistry();
+            stats = new MatchStatistics();
+            skipCnt = new AtomicInteger(0);
+            pruneCnt = new AtomicInteger(0);
+            workerCandidates = new CopyOnWriteArrayList<>();
+            localCandidates = ThreadLocal.withInitial(() -> {
+                final BestCandidates ret = new BestCandidates(BEST_CANDIDATE_LIMIT);
+                workerCandidates.add(ret);
+                return ret;
+            });
+            this.deadline = deadline;
+            this.maxEvaluations = maxEvaluations;
+            evalCnt = new AtomicInteger(0);
+            exhausted = false;
+            stopped = false;
+        }
+        
+        /**
+         * Adds an evaluated configuration to the best candidates of the current worker.
+         * @param conf the configuration with the result score set
+         * @param position the position of the configuration in the scan
+         */
+        public void addCandidate(MatcherConfiguration conf, int[] position)
+        {
+            localCandidates.get().add(conf, position);
+        }
+        
+        /**
+         * Checks whether a configuration with the given score bounds would be certainly out of the best
+         * candidates found by all the workers so far (see {@link BestCandidates#isOutranked(int, float)}).
+         */
+        public boolean isOutranked(int maxAreas, float maxScore)
+        {
+            int cnt = 0;
+            for (BestCandidates part : workerCandidates)
+            {
+                cnt += part.getOutrankingCount(maxAreas, maxScore, BEST_CANDIDATE_LIMIT - cnt);
+                if (cnt >= BEST_CANDIDATE_LIMIT)
+                    return true;
+            }
+            return false;
+        }
+        
+        /**
+         * Merges the best candidates found by the individual workers. It should be called when the scan
+         * is finished.
+         * @return the best candidates found by the scan
+         */
+        public BestCandidates mergeCandidates()
+        {
+            final BestCandidates ret = new BestCandidates(BEST_CANDIDATE_LIMIT);
+            for (BestCandidates part : workerCandidates)
+                ret.addAll(part);
+            return ret;
+        }
+        
+        /**
+         * Checks whether the scan has a limited budget.
+         */
+        public boolean isLimited()
+        {
+            return deadline > 0 || maxEvaluations > 0;
+        }
+        
+        /**
+         * Checks whether the scan budget has been exhausted.
+         */
+        public boolean isExhausted()
+        {
+            if (!exhausted && deadline > 0 && System.currentTimeMillis() > deadline)
+                exhausted = true;
+            return exhausted;
+        }
+        
+        /**
+         * Checks whether the scan budget has been exhausted before some work is started. When so,
+         * the work is skipped and the scan is marked as stopped.
+         * @return {@code true} when the work should be skipped
+         */
+        public boolean stopIfExhausted()
+        {
+            if (isExhausted())
+            {
+                stopped = true;
+                return true;
+            }
+            else
+                return false;
+        }
+        
+        /**
+         * Registers a new configuration evaluation.
+         * @return {@code true} when the evaluation may start, {@code false} when the budget has been exhausted
+         * (the scan is marked as stopped then)
+         */
+        public boolean startEvaluation()
+        {
+            if (stopIfExhausted())
+                return false;
+            if (maxEvaluations > 0 && evalCnt.incrementAndGet() > maxEvaluations)
+            {
+                evalCnt.decrementAndGet();
+                exhausted = true;
+                stopped = true;
+                return false;
+            }
+            else if (maxEvaluations <= 0)
+                evalCnt.incrementAndGet();
+            return true;
+        }
+    }
+    
+    /**
+     * A group of scan tasks. When running in a fork-join pool, the tasks are forked and joined;
+     * otherwise, they are invoked sequentially in the original order.
+     */
+    private class ScanGroup extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private List<? extends RecursiveAction> tasks;
+        
+        public ScanGroup(List<? extends RecursiveAction> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (ForkJoinTask.inForkJoinPool() && tasks.size() > 1)
+                ForkJoinTask.invokeAll(tasks);
+            else
+            {
+                for (RecursiveAction task : tasks)
+                    task.invoke();
+            }
+        }
+    }
+    
+    private class StyleMapScan extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private ScanContext ctx;
+        private Map<Tag, AreaStyle> styleMap;
+        private int styleIndex;
+        //prepared by prepare()
+        private StyleResolver dis;
+        private StyleMapFingerprint fingerprint;
+        
+        public StyleMapScan(ScanContext ctx, Map<Tag, AreaStyle> styleMap, int styleIndex)
+        {
+            this.ctx = ctx;
+            this.styleMap = styleMap;
+            this.styleIndex = styleIndex;
+        }
+        
+        /**
+         * Creates the style resolver for the style map and computes the fingerprint of the resulting tags.
+         * @param probes the probe areas used for the fingerprint
+         */
+        public void prepare(List<Area> probes)
+        {
+            dis = createStyleResolver(new StyleAnalyzerFixed(getCompleteStyleMap(styleMap), ctx.styleMapCache), MIN_TAG_SUPPORT_TRAIN,
+                    ctx.tagRegistry);
+            fingerprint = new StyleMapFingerprint(probes, dis);
+        }
+        
+        /**
+         * Releases the prepared data.
+         */
+        public void release()
+        {
+            dis = null;
+            fingerprint = null;
+        }
+
+        @Override
+        protected void compute()
+        {
+            scanStyleMap(ctx, styleMap, styleIndex, dis);
+            release();
+        }
+    }
+    
+    /**
+     * A style map that has not been scanned because it is equivalent to a preceding one.
+     */
+    private static class CollapsedStyleMap
+    {
+        final Map<Tag, AreaStyle> styleMap;
+        final int styleIndex;
+        final Map<Tag, AreaStyle> representative;
+        
+        public CollapsedStyleMap(Map<Tag, AreaStyle> styleMap, int styleIndex, Map<Tag, AreaStyle> representative)
+        {
+            this.styleMap = styleMap;
+            this.styleIndex = styleIndex;
+            this.representative = representative;
+        }
+    }
+    
+    private class StyleMapPreparation extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private StyleMapScan task;
+        private List<Area> probes;
+        
+        public StyleMapPreparation(StyleMapScan task, List<Area> probes)
+        {
+            this.task = task;
+            this.probes = probes;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (!task.ctx.isExhausted())
+                task.prepare(probes);
+        }
+    }
+    
+    private class ConfigurationScan extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private ScanContext ctx;
+        private MatcherConfiguration conf;
+        private ChunksSource styledSource;
+        private StyleResolver dis;
+        private int[] position;
+        private String pos;
+        
+        public ConfigurationScan(ScanContext ctx, MatcherConfiguration conf, ChunksSource styledSource, StyleResolver dis, int[] position, String pos)
+        {
+            this.ctx = ctx;
+            this.conf = conf;
+            this.styledSource = styledSource;
+            this.dis = dis;
+            this.position = position;
+            this.pos = pos;
+        }
+
+        @Override
+        protected void compute()
+        {
+            scanConfiguration(ctx, conf, styledSource, dis, position, pos);
+        }
+    }
+    
+    private class HintedConfigurationScan extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private ScanContext ctx;
+        private MatcherConfiguration iconf;
+        private StyleResolver dis;
+        private int[] position;
+        private String pos;
+        
+        public HintedConfigurationScan(ScanContext ctx, MatcherConfiguration iconf, StyleResolver dis, int[] position, String pos)
+        {
+            this.ctx = ctx;
+            this.iconf = iconf;
+            this.dis = dis;
+            this.position = position;
+            this.pos = pos;
+        }
+
+        @Override
+        protected void compute()
+        {
+            scanHintedConfiguration(ctx, iconf, dis, position, pos);
+        }
+    }
+    
+    //==============================================================================================
+    
     public static class Attribute
     {
         Tag tag;
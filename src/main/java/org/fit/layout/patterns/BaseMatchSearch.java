@@ -0,0 +1,213 @@
+/**
+ * BaseMatchSearch.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaConnection;
+import org.fit.layout.patterns.model.AreaConnectionVisitor;
+import org.fit.layout.patterns.model.AreaOccupancySet;
+import org.fit.layout.patterns.model.ConnectionPattern;
+import org.fit.layout.patterns.model.Match;
+import org.fit.layout.patterns.model.MatchResult;
+import org.fit.layout.patterns.model.MatcherConfiguration;
+import org.fit.layout.patterns.model.TagConnection;
+
+/**
+ * A base class for the implementations of the match search: the search for the matches of a matcher
+ * configuration among the tagged areas of a page. It contains the state common to all the searches
+ * and the rules used for selecting the areas and checking the matches.
+ */
+public abstract class BaseMatchSearch
+{
+    /** Use the precomputed best source tables for finding the best relations instead of querying the connections */
+    protected static final boolean USE_BEST_SOURCE_TABLES = true;
+    /** Check the consistency constraints as soon as their tags are bound instead of checking the complete matches only */
+    protected static final boolean USE_EARLY_CONSTRAINTS = true;
+
+    protected final Matcher matcher;
+    protected final RelationAnalyzer pa;
+    protected final StyleResolver dis;
+    protected final Map<Tag, Set<Area>> tagAreas;
+    protected final ConnectionPattern constraints;
+
+    //the results
+    protected final Set<Match> matches;
+    protected final Set<Area> matchedAreas;
+
+
+    /**
+     * Creates a new search.
+     * @param matcher the matcher that provides the tag cardinalities
+     * @param conf the configuration whose matches should be found
+     * @param pa the relation analyzer used for finding the relations
+     * @param dis the style resolver used for assigning the tags to areas
+     * @param tagAreas the candidate areas for the individual tags
+     */
+    public BaseMatchSearch(Matcher matcher, MatcherConfiguration conf, RelationAnalyzer pa, StyleResolver dis, Map<Tag, Set<Area>> tagAreas)
+    {
+        this.matcher = matcher;
+        this.pa = pa;
+        this.dis = dis;
+        this.tagAreas = tagAreas;
+        this.constraints = conf.getConstraints();
+        matches = new HashSet<>();
+        matchedAreas = new AreaOccupancySet(); //spatially indexed for the overlap checks
+    }
+
+    /**
+     * Runs the search.
+     * @return the match result
+     */
+    public abstract MatchResult run();
+
+    //==============================================================================================
+
+    protected static boolean isAlreadyUsed(Area a, Collection<Area> matchedAreas)
+    {
+        //return matchedAreas.contains(a);
+        return AreaUtils.areasOverlap(a, matchedAreas, Match.MIN_OVERLAP_PERCENTAGE);
+    }
+
+    /**
+     * Obtains the best area connections with the specified second area and the
+     * specified relation. The best connection means that there does not exist
+     * any better source area for this with the same destination area and a higher weight.
+     * E.g. all areas below {@code a}.
+     * Only the areas with specified tags are taken into account, the tags are inferred using
+     * a disambiguator.
+     * @param pa The relation analyzer used for finding the relations
+     * @param a the area to be used as {@code A2} in the area connections.
+     * @param r the relation to be uses.
+     * @param srcTag the tag required for the source areas (incl. {@code a})
+     * @param destTag the tag required for the destination areas
+     * @param allowMany when set to {@code true}, all 'best' connections will be returned. Otherwise, only the one with the greatest weight will be returned.
+     * @param dis the disambiguator used for assigning the tags to areas
+     * @return the list of best area connections that correspond to the above criteria
+     */
+    protected static List<AreaConnection> getAreasInBestRelation(RelationAnalyzer pa, Area a, Relation r, Tag srcTag, Tag destTag, boolean allowMany, StyleResolver dis)
+    {
+        Collection<AreaConnection> all = pa.getConnections(null, r, a, -1.0f);
+        //if only a single match is allowed, sort the matches in order to start with the best candidates
+        if (!allowMany)
+        {
+            List<AreaConnection> clist = (all instanceof List) ? (List<AreaConnection>) all : new ArrayList<>(all);
+            Collections.sort(clist, new Comparator<AreaConnection>()
+            {
+                @Override
+                public int compare(AreaConnection o1, AreaConnection o2)
+                {
+                    if (o1.getWeight() < o2.getWeight())
+                        return 1;
+                    else if (o1.getWeight() > o2.getWeight())
+                        return -1;
+                    else
+                        return 0;
+                }
+            });
+            all = clist;
+        }
+        //scan the candidates; the better connections are either looked up in the precomputed table
+        //or visited from the greatest weight until the first one with the source tag is found
+        final BestSourceTable table = USE_BEST_SOURCE_TABLES ? pa.getBestSourceTable(r, srcTag, dis) : null;
+        final int srcOrd = dis.getTagRegistry().getOrdinal(srcTag);
+        final int destOrd = dis.getTagRegistry().getOrdinal(destTag);
+        final AreaConnectionVisitor noBetter = (a1, a2, rel, weight) -> !dis.getAreaTagSet(a2).contains(srcOrd);
+        List<AreaConnection> ret = new ArrayList<>(all.size());
+        for (AreaConnection cand : all)
+        {
+            if (dis.getAreaTagSet(cand.getA1()).contains(destOrd))
+            {
+                //find the source nodes that are closer
+                final boolean noBetterFound = (table != null) ?
+                        !table.hasBetterSource(cand.getA1(), cand.getWeight())
+                        : pa.visitConnections(cand.getA1(), r, null, cand.getWeight(), noBetter);
+                if (noBetterFound)
+                {
+                    ret.add(cand); //a1 has no "better" source area, use it
+                    /*if (!allowMany)
+                        break;*/ //we have found the best one but we return all; they will be filtered later
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether the given match complies with the given constraints.
+     * @param pa The relation analyzer used for finding the relations
+     * @param match the match to be checked
+     * @param constraints the constraints
+     * @return {@code true} when the match complies with the constraints, {@code false} otherwise.
+     */
+    protected static boolean matchesConstraints(RelationAnalyzer pa, Match match, ConnectionPattern constraints)
+    {
+        for (TagConnection con : constraints)
+        {
+            Set<Relation> found = getMatchRelations(pa, match, con.getA1(), con.getA2());
+            if (!found.contains(con.getRelation()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the constraints that involve the given tag in a partial match. Only the constraints whose
+     * both tags are already bound in the match are checked, the remaining ones are skipped.
+     * @param pa The relation analyzer used for finding the relations
+     * @param bindings the areas bound to the tags in the partial match
+     * @param constraints the constraints
+     * @param tag the tag that has been bound recently
+     * @return {@code false} when the partial match violates some of the checked constraints
+     */
+    protected static boolean matchesBoundConstraints(RelationAnalyzer pa, Map<Tag, List<Area>> bindings, ConnectionPattern constraints, Tag tag)
+    {
+        for (TagConnection con : constraints)
+        {
+            if (con.getA1().equals(tag) || con.getA2().equals(tag))
+            {
+                final List<Area> l1 = bindings.get(con.getA1());
+                final List<Area> l2 = bindings.get(con.getA2());
+                if (l1 != null && l2 != null)
+                {
+                    if (l1.isEmpty() || l2.isEmpty() || !pa.getRelationsFor(l1.get(0), l2.get(0), -1.0f).contains(con.getRelation()))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds all different relations among two areas in the page that are specified with a particular
+     * match and their tags.
+     * @param pa The relation analyzer used for finding the relations
+     * @param match The match to be used.
+     * @param t1 The tag of the first area.
+     * @param t2 The tag of the second area.
+     * @return A set of relationships among the first and second area that are mapped to {@code t1} and
+     * {@code t2} in the {@code match}.
+     */
+    protected static Set<Relation> getMatchRelations(RelationAnalyzer pa, Match match, Tag t1, Tag t2)
+    {
+        Area a1 = match.getSingle(t1);
+        Area a2 = match.getSingle(t2);
+        if (a1 != null && a2 != null)
+            return pa.getRelationsFor(a1, a2, -1.0f);
+        else
+            return Collections.emptySet();
+    }
+
+}
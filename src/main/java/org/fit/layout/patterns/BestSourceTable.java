@@ -0,0 +1,80 @@
+/**
+ * BestSourceTable.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Tag;
+
+/**
+ * A precomputed table of the best source areas for a relation and a source tag. For each destination
+ * area ({@code A1} of the area connections), the table contains the maximal weight of the connections
+ * with the given relation whose source area ({@code A2}) has the given tag assigned by a style resolver.
+ * Then, the test whether there exists a better source area for a connection is a single lookup.
+ * The table is immutable after it has been created.
+ */
+public class BestSourceTable
+{
+    private Map<Area, Integer> areaIds;
+    private float[] maxWeights;
+
+
+    /**
+     * Creates the table.
+     * @param pa the relation analyzer providing the area connections
+     * @param areaIds the dense ids of the analyzed areas
+     * @param r the relation
+     * @param srcTag the tag required for the source areas
+     * @param dis the resolver used for assigning the tags to the areas
+     */
+    public BestSourceTable(RelationAnalyzer pa, Map<Area, Integer> areaIds, Relation r, Tag srcTag, TagResolver dis)
+    {
+        this.areaIds = areaIds;
+        maxWeights = new float[areaIds.size()];
+        Arrays.fill(maxWeights, Float.NEGATIVE_INFINITY);
+        //the source tag is resolved once per area: 0 = not resolved yet, 1 = tagged, 2 = not tagged
+        final byte[] tagged = new byte[areaIds.size()];
+        pa.visitConnections(null, r, null, -1.0f, (a1, a2, rel, weight) -> {
+            final Integer id1 = areaIds.get(a1);
+            final Integer id2 = areaIds.get(a2);
+            if (id1 != null && id2 != null && weight > maxWeights[id1])
+            {
+                if (tagged[id2] == 0)
+                    tagged[id2] = dis.getAreaTags(a2).contains(srcTag) ? (byte) 1 : (byte) 2;
+                if (tagged[id2] == 1)
+                    maxWeights[id1] = weight;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Obtains the maximal weight of the connections of the given destination area with the source areas
+     * that have the source tag assigned.
+     * @param dest the destination area
+     * @return the maximal weight or {@code Float.NEGATIVE_INFINITY} when there are no such connections
+     */
+    public float getMaxWeight(Area dest)
+    {
+        final Integer id = areaIds.get(dest);
+        return (id == null) ? Float.NEGATIVE_INFINITY : maxWeights[id];
+    }
+
+    /**
+     * Checks whether there exists a source area with the source tag assigned that is in the relation
+     * with the given destination area with a weight greater than the given one.
+     * @param dest the destination area
+     * @param weight the weight to compare
+     * @return {@code true} when a better source area exists
+     */
+    public boolean hasBetterSource(Area dest, float weight)
+    {
+        return getMaxWeight(dest) > weight;
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * CachingStyleResolver.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.patterns.model.TagRegistry;
+import org.fit.layout.patterns.model.TagSet;
+
+/**
+ * A style resolver that computes the tags of each area only once and returns the same
+ * (unmodifiable) set on the subsequent calls. The resolver may be used from multiple threads.
+ * It assumes that the tags and the style of the areas do not change while the resolver is used.
+ */
+public class CachingStyleResolver extends StyleResolver
+{
+    private Map<Area, TagSet> areaTags;
+
+
+    public CachingStyleResolver(StyleAnalyzer styles, float minSupport)
+    {
+        super(styles, minSupport);
+        areaTags = new ConcurrentHashMap<>();
+    }
+
+    public CachingStyleResolver(StyleAnalyzer styles, float minSupport, boolean allowNewTags)
+    {
+        super(styles, minSupport, allowNewTags);
+        areaTags = new ConcurrentHashMap<>();
+    }
+
+    public CachingStyleResolver(StyleAnalyzer styles, float minSupport, boolean allowNewTags, TagRegistry registry)
+    {
+        super(styles, minSupport, allowNewTags, registry);
+        areaTags = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Obtains the tags assigned to the area. The tags are computed on the first call for the area.
+     * @return an unmodifiable set of tags
+     */
+    @Override
+    public TagSet getAreaTagSet(Area a)
+    {
+        TagSet ret = areaTags.get(a);
+        if (ret == null)
+        {
+            //computed outside of the map in order not to block the other areas; in the worst case,
+            //the tags are computed twice
+            ret = super.getAreaTagSet(a).unmodifiable();
+            final TagSet prev = areaTags.putIfAbsent(a, ret);
+            if (prev != null)
+                ret = prev;
+        }
+        return ret;
+    }
+
+    /**
+     * Obtains the number of areas with cached tags.
+     * @return the number of areas
+     */
+    public int size()
+    {
+        return areaTags.size();
+    }
+
+    /**
+     * Removes all the cached tags.
+     */
+    public void clear()
+    {
+        areaTags.clear();
+    }
+
+}
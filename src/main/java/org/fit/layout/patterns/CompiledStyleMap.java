@@ -0,0 +1,213 @@
+/**
+ * CompiledStyleMap.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaStyle;
+
+/**
+ * A tag to style mapping compiled to a lookup table that finds the tags whose styles are comparable
+ * to a given area style (see {@link StyleAnalyzerFixed#isComparableStyle(AreaStyle, AreaStyle)})
+ * without comparing the style with all the mapped styles.
+ *
+ * <p>The mapped styles are grouped by their wildcard features. For each group, the styles are stored
+ * in a hash table under the tuples of their remaining feature values. The font size, weight and style
+ * are compared with a tolerance; therefore, they are stored under all the rounded values that
+ * the comparable values may have. The lookup then takes a single probe per group and the found styles
+ * are checked with {@link StyleAnalyzerFixed#isComparableStyle(AreaStyle, AreaStyle)}. The area styles
+ * that contain wildcards themselves are compared with all the styles.
+ *
+ * <p>The compiled mappings are immutable. The same mappings are used by many analyzers during the
+ * configuration scan, so the compiled ones are shared using a {@link CompiledStyleMapCache}.
+ */
+public class CompiledStyleMap
+{
+    /** Scale of the rounded float values; corresponds to the float comparison tolerance */
+    private static final double VALUE_SCALE = 1000.0;
+    /** Number of the rounded values stored on each side of a float value */
+    private static final int VALUE_SPREAD = 2;
+
+    private static final int FONT_SIZE = 1;
+    private static final int WEIGHT = 2;
+    private static final int STYLE = 4;
+    private static final int COLOR = 8;
+    private static final int BG_COLOR = 16;
+
+    private final Map<Tag, AreaStyle> styles;
+    private final int[] masks; //the wildcard masks used by the styles
+    private final Map<StyleKey, Tag[]> index;
+
+
+    /**
+     * Compiles a tag to style mapping.
+     * @param styles the tag to style mapping
+     */
+    public CompiledStyleMap(Map<Tag, AreaStyle> styles)
+    {
+        this.styles = Collections.unmodifiableMap(new HashMap<>(styles));
+        final Set<Integer> usedMasks = new HashSet<>();
+        final Map<StyleKey, List<Tag>> entries = new HashMap<>();
+        for (Map.Entry<Tag, AreaStyle> entry : this.styles.entrySet())
+        {
+            final AreaStyle style = entry.getValue();
+            final int mask = getWildcardMask(style);
+            usedMasks.add(mask);
+            final long[] fs = getValueRange(style.getFontSize(), (mask & FONT_SIZE) != 0);
+            final long[] w = getValueRange(style.getWeight(), (mask & WEIGHT) != 0);
+            final long[] s = getValueRange(style.getStyle(), (mask & STYLE) != 0);
+            for (long vfs = fs[0]; vfs <= fs[1]; vfs++)
+                for (long vw = w[0]; vw <= w[1]; vw++)
+                    for (long vs = s[0]; vs <= s[1]; vs++)
+                    {
+                        final StyleKey key = new StyleKey(mask, vfs, vw, vs, style.getColor(), style.getBgColor());
+                        List<Tag> tags = entries.get(key);
+                        if (tags == null)
+                        {
+                            tags = new ArrayList<>(1);
+                            entries.put(key, tags);
+                        }
+                        tags.add(entry.getKey());
+                    }
+        }
+        masks = new int[usedMasks.size()];
+        int i = 0;
+        for (Integer mask : usedMasks)
+            masks[i++] = mask;
+        index = new HashMap<>(entries.size());
+        for (Map.Entry<StyleKey, List<Tag>> entry : entries.entrySet())
+            index.put(entry.getKey(), entry.getValue().toArray(new Tag[0]));
+    }
+
+    public Map<Tag, AreaStyle> getStyles()
+    {
+        return styles;
+    }
+
+    /**
+     * Finds the tags whose styles are comparable to the given style.
+     * @param astyle the area style
+     * @return the set of tags
+     */
+    public Set<Tag> inferTags(AreaStyle astyle)
+    {
+        Set<Tag> ret = new HashSet<>();
+        if (getWildcardMask(astyle) == 0)
+        {
+            for (int mask : masks)
+            {
+                final StyleKey key = new StyleKey(mask,
+                        getValue(astyle.getFontSize(), (mask & FONT_SIZE) != 0),
+                        getValue(astyle.getWeight(), (mask & WEIGHT) != 0),
+                        getValue(astyle.getStyle(), (mask & STYLE) != 0),
+                        (mask & COLOR) != 0 ? null : astyle.getColor(),
+                        (mask & BG_COLOR) != 0 ? null : astyle.getBgColor());
+                final Tag[] tags = index.get(key);
+                if (tags != null)
+                {
+                    for (Tag tag : tags)
+                    {
+                        if (StyleAnalyzerFixed.isComparableStyle(styles.get(tag), astyle))
+                            ret.add(tag);
+                    }
+                }
+            }
+        }
+        else
+        {
+            //the wildcards in the area style match anything
+            for (Map.Entry<Tag, AreaStyle> entry : styles.entrySet())
+            {
+                if (StyleAnalyzerFixed.isComparableStyle(entry.getValue(), astyle))
+                    ret.add(entry.getKey());
+            }
+        }
+        return ret;
+    }
+
+    //=========================================================================
+
+    private static int getWildcardMask(AreaStyle style)
+    {
+        int ret = 0;
+        if (style.getFontSize() == -1.0f) ret |= FONT_SIZE;
+        if (style.getWeight() == -1.0f) ret |= WEIGHT;
+        if (style.getStyle() == -1.0f) ret |= STYLE;
+        if (style.getColor() == null) ret |= COLOR;
+        if (style.getBgColor() == null) ret |= BG_COLOR;
+        return ret;
+    }
+
+    private static long getValue(float value, boolean wildcard)
+    {
+        return wildcard ? 0 : (long) Math.floor(value * VALUE_SCALE);
+    }
+
+    private static long[] getValueRange(float value, boolean wildcard)
+    {
+        final long v = getValue(value, wildcard);
+        if (wildcard)
+            return new long[] {v, v};
+        else
+            return new long[] {v - VALUE_SPREAD, v + VALUE_SPREAD};
+    }
+
+    private static class StyleKey
+    {
+        private final int mask;
+        private final long fontSize;
+        private final long weight;
+        private final long style;
+        private final Color color;
+        private final Color bgColor;
+        private final int hash;
+
+        public StyleKey(int mask, long fontSize, long weight, long style, Color color, Color bgColor)
+        {
+            this.mask = mask;
+            this.fontSize = fontSize;
+            this.weight = weight;
+            this.style = style;
+            this.color = color;
+            this.bgColor = bgColor;
+            final int prime = 31;
+            int result = mask;
+            result = prime * result + Long.hashCode(fontSize);
+            result = prime * result + Long.hashCode(weight);
+            result = prime * result + Long.hashCode(style);
+            result = prime * result + ((color == null) ? 0 : color.hashCode());
+            result = prime * result + ((bgColor == null) ? 0 : bgColor.hashCode());
+            hash = result;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            StyleKey other = (StyleKey) obj;
+            return mask == other.mask && fontSize == other.fontSize && weight == other.weight && style == other.style
+                    && (color == null ? other.color == null : color.equals(other.color))
+                    && (bgColor == null ? other.bgColor == null : bgColor.equals(other.bgColor));
+        }
+    }
+
+}
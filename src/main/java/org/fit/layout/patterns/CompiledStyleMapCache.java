@@ -0,0 +1,89 @@
+/**
+ * CompiledStyleMapCache.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaStyle;
+
+/**
+ * A cache of the compiled tag to style mappings. The same mappings are used by many style analyzers
+ * during a configuration scan (e.g. the style map scan and its preparation), so each mapping is only
+ * compiled once. The cache is meant to be used for a single scan: the mappings are used as the keys
+ * and they must not be modified while the cache is in use. The number of the cached mappings is limited;
+ * the least recently used ones are removed first. The cache may be shared by the scans running in parallel.
+ */
+public class CompiledStyleMapCache
+{
+    /** Default maximal number of the compiled mappings */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private int capacity;
+    private Map<Map<Tag, AreaStyle>, CompiledStyleMap> cache;
+    private int reads = 0;
+    private int hits = 0;
+
+
+    public CompiledStyleMapCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param capacity the maximal number of the compiled mappings
+     */
+    public CompiledStyleMapCache(int capacity)
+    {
+        this.capacity = capacity;
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtains the compiled mapping for the given tag to style mapping.
+     * @param styles the tag to style mapping
+     * @return the compiled mapping
+     */
+    public synchronized CompiledStyleMap compile(Map<Tag, AreaStyle> styles)
+    {
+        reads++;
+        CompiledStyleMap ret = cache.get(styles);
+        if (ret == null)
+        {
+            ret = new CompiledStyleMap(styles);
+            cache.put(ret.getStyles(), ret);
+            if (cache.size() > capacity)
+                cache.remove(cache.keySet().iterator().next()); //the least recently used one
+        }
+        else
+            hits++;
+        return ret;
+    }
+
+    public synchronized int size()
+    {
+        return cache.size();
+    }
+
+    public synchronized int getReads()
+    {
+        return reads;
+    }
+
+    public synchronized int getHits()
+    {
+        return hits;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "CompiledStyleMapCache[" + cache.size() + " mappings, " + reads + " reads, " + hits + " hits]";
+    }
+
+}
@@ -5,82 +5,161 @@
  */
 package org.fit.layout.patterns;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaStyle;
 import org.fit.layout.patterns.model.ConnectionPattern;
 import org.fit.layout.patterns.model.MatcherConfiguration;
 import org.fit.layout.patterns.model.TagConnection;
 
 /**
  * A registry of configurations used for discovering equivalent configurations based on the
- * relation properties (inverse relations and symmetric relations).
+ * relation properties (inverse relations and symmetric relations). The registry may be shared
+ * among configurations scanned in parallel.
+ * 
+ * <p>The configurations are indexed by a canonical key: each tag connection is normalized
+ * so that the equivalent connections have the same key (an inverse relation is replaced with 
+ * the original relation, the order of tags is ignored for symmetric relations) and the connection
+ * keys are compared as sets. An equivalent configuration is therefore found by a single lookup.
  * 
  * @author burgetr
  */
 public class ConfigurationRegistry
 {
-    private List<MatcherConfiguration> known;
+    private Map<ConfigurationKey, MatcherConfiguration> known;
     
     public ConfigurationRegistry()
     {
-        known = new ArrayList<>();
+        known = new HashMap<>();
     }
 
-    public void add(MatcherConfiguration conf)
+    public synchronized void add(MatcherConfiguration conf)
     {
-        known.add(conf);
+        final ConfigurationKey key = new ConfigurationKey(conf);
+        if (!known.containsKey(key))
+            known.put(key, conf);
     }
     
-    public MatcherConfiguration findEquivalent(MatcherConfiguration conf)
+    public synchronized MatcherConfiguration findEquivalent(MatcherConfiguration conf)
     {
-        for (MatcherConfiguration c : known)
-        {
-            if (isEquivalent(c, conf))
-                return c;
-        }
-        return null;
+        return known.get(new ConfigurationKey(conf));
+    }
+    
+    /**
+     * Adds a configuration to the registry unless an equivalent configuration is already registered.
+     * The check and the insertion are performed atomically.
+     * @param conf the configuration to add
+     * @return the already registered equivalent configuration or {@code null} when the configuration
+     * has been added
+     */
+    public synchronized MatcherConfiguration addIfUnique(MatcherConfiguration conf)
+    {
+        final ConfigurationKey key = new ConfigurationKey(conf);
+        final MatcherConfiguration eq = known.get(key);
+        if (eq == null)
+            known.put(key, conf);
+        return eq;
+    }
+    
+    public synchronized int size()
+    {
+        return known.size();
     }
     
     //================================================================================
     
-    private boolean isEquivalent(MatcherConfiguration c1, MatcherConfiguration c2)
+    /**
+     * A canonical key of a configuration that is equal for all the equivalent configurations.
+     */
+    private static class ConfigurationKey
     {
-        return c1.getStyleMap().equals(c2.getStyleMap())
-                && isPatternEquivalent(c1.getPattern(), c2.getPattern());
+        private Map<Tag, AreaStyle> styleMap;
+        private Set<ConnectionKey> connections;
+        private int hash;
+        
+        public ConfigurationKey(MatcherConfiguration conf)
+        {
+            styleMap = conf.getStyleMap();
+            final ConnectionPattern pattern = conf.getPattern();
+            connections = new HashSet<>(pattern.size() * 2);
+            for (TagConnection con : pattern)
+                connections.add(new ConnectionKey(con));
+            hash = 31 * styleMap.hashCode() + connections.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            ConfigurationKey other = (ConfigurationKey) obj;
+            return hash == other.hash
+                    && connections.equals(other.connections)
+                    && styleMap.equals(other.styleMap);
+        }
     }
     
-    private boolean isPatternEquivalent(ConnectionPattern p1, ConnectionPattern p2)
+    /**
+     * A normalized tag connection. From a relation and its inverse, the one with the lexicographically
+     * smaller name is used (with the tags swapped when necessary). For symmetric relations, 
+     * the order of the tags is not significant.
+     */
+    private static class ConnectionKey
     {
-        for (TagConnection tc1 : p1)
+        private Tag a1;
+        private Tag a2;
+        private Relation relation;
+        
+        public ConnectionKey(TagConnection con)
         {
-            //find the corresponding tag pair in p2
-            TagConnection found = null;
-            for (TagConnection tc2 : p2)
+            final Relation r = con.getRelation();
+            final Relation inv = r.getInverse();
+            if (inv != null && inv.getName().compareTo(r.getName()) < 0)
             {
-                if (isConnectionEquivalent(tc1, tc2))
-                {
-                    found = tc2;
-                    break;
-                }
+                a1 = con.getA2();
+                a2 = con.getA1();
+                relation = inv;
             }
-            if (found == null)
+            else
+            {
+                a1 = con.getA1();
+                a2 = con.getA2();
+                relation = r;
+            }
+        }
+
+        @Override
+        public int hashCode()
+        {
+            //the tag order is not included in the hash in order to support the symmetric relations
+            return 31 * relation.hashCode() + a1.hashCode() + a2.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            ConnectionKey other = (ConnectionKey) obj;
+            if (!relation.equals(other.relation))
                 return false;
+            else if (a1.equals(other.a1) && a2.equals(other.a2))
+                return true;
+            else
+                return relation.isSymmetric() && a1.equals(other.a2) && a2.equals(other.a1);
         }
-        //all corresponding tag pairs found
-        return true;
-    }
-    
-    private boolean isConnectionEquivalent(TagConnection tc1, TagConnection tc2)
-    {
-        return
-                (tc2.getA1().equals(tc1.getA1()) && tc2.getA2().equals(tc1.getA2()) //equal tags
-                        && tc2.getRelation().equals(tc1.getRelation()))             //  and the equal relation
-                || 
-                (tc2.getA1().equals(tc1.getA2()) && tc2.getA2().equals(tc1.getA1()) //reverse tags
-                        && ((tc2.getRelation().equals(tc1.getRelation()) && tc1.getRelation().isSymmetric()) //the same symmetric relation
-                                || (tc2.getRelation().getInverse() != null                                   //inverse relation
-                                        && tc2.getRelation().getInverse().equals(tc1.getRelation()))));
     }
     
 }
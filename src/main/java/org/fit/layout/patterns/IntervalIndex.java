@@ -0,0 +1,160 @@
+/**
+ * IntervalIndex.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Arrays;
+
+/**
+ * A static index of closed integer intervals (e.g. the vertical or horizontal extents of areas)
+ * that allows to find all the intervals overlapping a given interval without scanning
+ * all of them. The intervals are identified by their indices; they are distributed to
+ * uniform buckets covering the whole coordinate range. Inverted intervals (with the end
+ * smaller than the start) are treated as the intervals between the two points.
+ *
+ * <p>The index is not thread-safe.
+ */
+public class IntervalIndex
+{
+    private int[] starts;
+    private int[] ends;
+    private int min;
+    private int bucketSize;
+    private int[][] buckets;
+    private int[] marks;
+    private int mark;
+
+    /**
+     * Creates the index.
+     * @param starts the start points of the intervals
+     * @param ends the end points of the intervals (inclusive)
+     */
+    public IntervalIndex(int[] starts, int[] ends)
+    {
+        this.starts = new int[starts.length];
+        this.ends = new int[starts.length];
+        for (int i = 0; i < starts.length; i++)
+        {
+            this.starts[i] = Math.min(starts[i], ends[i]);
+            this.ends[i] = Math.max(starts[i], ends[i]);
+        }
+        marks = new int[starts.length];
+        mark = 0;
+        build();
+    }
+
+    /**
+     * Obtains the number of indexed intervals.
+     * @return the number of intervals
+     */
+    public int size()
+    {
+        return starts.length;
+    }
+
+    /**
+     * Finds all the intervals that overlap the given interval. The intervals that only share
+     * the end points are considered to be overlapping.
+     * @param start the interval start
+     * @param end the interval end (inclusive)
+     * @return the indices of the overlapping intervals in ascending order
+     */
+    public int[] findOverlapping(int start, int end)
+    {
+        if (starts.length == 0)
+            return new int[0];
+        if (end < start)
+        {
+            final int t = start;
+            start = end;
+            end = t;
+        }
+        nextMark();
+        final int b1 = Math.max(0, Math.min(buckets.length - 1, bucketIndex(start)));
+        final int b2 = Math.max(0, Math.min(buckets.length - 1, bucketIndex(end)));
+        int[] ret = new int[16];
+        int cnt = 0;
+        for (int b = b1; b <= b2; b++)
+        {
+            for (int i : buckets[b])
+            {
+                if (marks[i] != mark)
+                {
+                    marks[i] = mark;
+                    if (starts[i] <= end && ends[i] >= start)
+                    {
+                        if (cnt == ret.length)
+                            ret = Arrays.copyOf(ret, cnt * 2);
+                        ret[cnt++] = i;
+                    }
+                }
+            }
+        }
+        ret = Arrays.copyOf(ret, cnt);
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    //==============================================================================================
+
+    private void build()
+    {
+        final int n = starts.length;
+        if (n > 0)
+        {
+            //the coordinate range and the average interval length
+            min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            long totalLength = 0;
+            for (int i = 0; i < n; i++)
+            {
+                min = Math.min(min, starts[i]);
+                max = Math.max(max, ends[i]);
+                totalLength += (long) ends[i] - starts[i] + 1;
+            }
+            //bucket size close to the average interval length, at most n buckets
+            final long range = (long) max - min + 1;
+            final long avg = Math.max(1, totalLength / n);
+            final long minSize = (range + n - 1) / n;
+            bucketSize = (int) Math.min(Integer.MAX_VALUE, Math.max(avg, Math.max(1, minSize)));
+            final int bcnt = (int) ((range + bucketSize - 1) / bucketSize);
+            //count the intervals in the buckets
+            final int[] counts = new int[bcnt];
+            for (int i = 0; i < n; i++)
+            {
+                for (int b = bucketIndex(starts[i]); b <= bucketIndex(ends[i]); b++)
+                    counts[b]++;
+            }
+            //fill the buckets
+            buckets = new int[bcnt][];
+            for (int b = 0; b < bcnt; b++)
+                buckets[b] = new int[counts[b]];
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++)
+            {
+                for (int b = bucketIndex(starts[i]); b <= bucketIndex(ends[i]); b++)
+                    buckets[b][counts[b]++] = i;
+            }
+        }
+        else
+            buckets = new int[0][];
+    }
+
+    private int bucketIndex(int coord)
+    {
+        return (int) (((long) coord - min) / bucketSize);
+    }
+
+    private void nextMark()
+    {
+        mark++;
+        if (mark == Integer.MAX_VALUE)
+        {
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+/**
+ * JoinMatchSearch.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaConnection;
+import org.fit.layout.patterns.model.Match;
+import org.fit.layout.patterns.model.ConnectionPattern;
+import org.fit.layout.patterns.model.MatchResult;
+import org.fit.layout.patterns.model.MatcherConfiguration;
+import org.fit.layout.patterns.model.TagConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A set-at-a-time implementation of the match search for the patterns that do not use any
+ * dependency matches. Each tag connection of the pattern is turned into a relation table that maps
+ * the source areas ({@code A2}) to their best connections with the candidate destination areas
+ * ({@code A1}). The tables are built in a single top-down pass over the pattern tree, restricted to
+ * the areas reachable from the seed candidates. A bottom-up semi-join pass then removes the areas
+ * that cannot be completed to a full match. Finally, the greedy selection of the matches
+ * (disjointness, cardinalities and the consistency constraints) is applied to the remaining seeds
+ * in the original order. The result is equal to the one of {@link MatchSearch}.
+ * The relation tables may be shared with other searches using a {@link PatternPrefixCache}.
+ *
+ * <p>The search assumes that the pattern is a tree rooted in the seed tag: each connection binds
+ * a new destination tag that has been reached through the preceding connections only. For other
+ * patterns, {@link #isApplicable()} returns {@code false} and {@link MatchSearch} must be used instead.
+ */
+public class JoinMatchSearch extends BaseMatchSearch
+{
+    private static Logger log = LoggerFactory.getLogger(JoinMatchSearch.class);
+
+    private final PatternPrefixCache prefixCache;
+
+    //the pairs in the traversal order
+    private final TagConnection[] pairs;
+    private final boolean treePattern; //is the pattern a tree rooted in the seed?
+    private final boolean[] a1Many;
+    private final boolean[] a2Many;
+    //the relation tables of the pairs: source area -> best connections to the candidate destinations
+    private final List<Map<Area, List<AreaConnection>>> tables;
+    //the areas that may be completed to a full match for the individual tags
+    private final Map<Tag, Set<Area>> viable;
+
+
+    /**
+     * Creates a new search.
+     * @param matcher the matcher that provides the tag cardinalities
+     * @param conf the configuration whose matches should be found
+     * @param pa the relation analyzer used for finding the relations
+     * @param dis the style resolver used for assigning the tags to areas
+     * @param tagAreas the candidate areas for the individual tags
+     * @param prefixCache the cache of the pattern prefixes shared among the searches or {@code null}
+     */
+    public JoinMatchSearch(Matcher matcher, MatcherConfiguration conf, RelationAnalyzer pa, StyleResolver dis, Map<Tag, Set<Area>> tagAreas, PatternPrefixCache prefixCache)
+    {
+        super(matcher, conf, pa, dis, tagAreas);
+        this.prefixCache = prefixCache;
+        final TagConnection[] order = createTraversalOrder(conf.getPattern());
+        treePattern = (order != null);
+        pairs = treePattern ? order : new TagConnection[0];
+        a1Many = new boolean[pairs.length];
+        a2Many = new boolean[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+        {
+            a1Many[i] = matcher.isTagMany(pairs[i].getA1());
+            a2Many[i] = matcher.isTagMany(pairs[i].getA2());
+            if (a2Many[i])
+                log.error("{} is MANY in {}); this should not happen!", pairs[i].getA2(), pairs[i]);
+        }
+        tables = new ArrayList<>(pairs.length);
+        viable = new HashMap<>();
+    }
+
+    /**
+     * Checks whether the search may be used for the pattern.
+     * @return {@code true} when the pattern is a tree rooted in the seed tag
+     */
+    public boolean isApplicable()
+    {
+        return treePattern;
+    }
+
+    @Override
+    public MatchResult run()
+    {
+        if (!treePattern)
+            throw new IllegalStateException("Not a tree pattern, the join search cannot be used");
+        final Tag seedTag = pairs[0].getA2();
+        final Set<Area> seeds = tagAreas.get(seedTag);
+        buildTables(seeds);
+        reduceTables();
+        final Set<Area> viableSeeds = viable.get(seedTag);
+        final Map<Tag, List<Area>> bindings = new HashMap<>();
+        final List<AreaConnection> cons = new ArrayList<>(pairs.length);
+        for (Area a : seeds)
+        {
+            if (viableSeeds.contains(a) && !isAlreadyUsed(a, matchedAreas))
+            {
+                bindings.clear();
+                cons.clear();
+                bindings.put(seedTag, Collections.singletonList(a));
+                if (selectMatch(bindings, cons))
+                {
+                    final Match match = createMatch(bindings, cons);
+                    if (constraints == null || matchesConstraints(pa, match, constraints))
+                    {
+                        matches.add(match);
+                        match.addAllAreasTo(matchedAreas);
+                    }
+                    else
+                        log.debug("Skipping inconsistent match: {}", match);
+                }
+            }
+        }
+        return new MatchResult(matches, matchedAreas, pa);
+    }
+
+    /**
+     * Orders the pairs the same way as the depth-first search does: the next pair is always the first
+     * remaining one whose source tag has been already bound.
+     * @return the ordered pairs or {@code null} when the pattern is not a tree rooted in the seed tag
+     * (some pairs cannot be reached from the seed or some destination tag is bound repeatedly)
+     */
+    private TagConnection[] createTraversalOrder(ConnectionPattern pattern)
+    {
+        final List<TagConnection> src = new ArrayList<>(pattern);
+        final TagConnection[] ret = new TagConnection[src.size()];
+        final Set<Tag> bound = new HashSet<>();
+        ret[0] = src.remove(0);
+        bound.add(ret[0].getA2());
+        if (!bound.add(ret[0].getA1()))
+            return null; //a loop
+        for (int i = 1; i < ret.length; i++)
+        {
+            for (TagConnection pair : src)
+            {
+                if (bound.contains(pair.getA2()))
+                {
+                    ret[i] = pair;
+                    break;
+                }
+            }
+            if (ret[i] == null)
+            {
+                log.debug("No next pair found but some are remaining");
+                return null;
+            }
+            src.remove(ret[i]);
+            if (!bound.add(ret[i].getA1()))
+            {
+                log.debug("{} is bound repeatedly", ret[i].getA1());
+                return null;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Builds the relation tables of all the pairs for the areas reachable from the seeds. The tables
+     * of the cached pattern prefixes are reused.
+     */
+    private void buildTables(Set<Area> seeds)
+    {
+        final Map<Tag, Set<Area>> reached = new HashMap<>();
+        reached.put(pairs[0].getA2(), seeds);
+        PatternPrefixCache.PrefixNode node = (prefixCache == null) ? null : prefixCache.getRoot(dis, pa);
+        for (int i = 0; i < pairs.length; i++)
+        {
+            final TagConnection pair = pairs[i];
+            final PatternPrefixCache.PrefixNode cached = (node == null) ? null : prefixCache.get(node, pair, a1Many[i]);
+            if (cached != null)
+            {
+                tables.add(cached.getTable());
+                reached.put(pair.getA1(), cached.getDestinations());
+                node = cached;
+            }
+            else
+            {
+                final Set<Area> destSet = tagAreas.get(pair.getA1());
+                final Map<Area, List<AreaConnection>> table = new HashMap<>();
+                final Set<Area> dests = new HashSet<>();
+                for (Area a : reached.get(pair.getA2()))
+                {
+                    final List<AreaConnection> inrel = getAreasInBestRelation(pa, a, pair.getRelation(), pair.getA2(), pair.getA1(), a1Many[i], dis);
+                    List<AreaConnection> rows = null;
+                    for (AreaConnection con : inrel)
+                    {
+                        if (destSet.contains(con.getA1()))
+                        {
+                            if (rows == null)
+                                rows = new ArrayList<>(inrel.size());
+                            rows.add(con);
+                            dests.add(con.getA1());
+                        }
+                    }
+                    if (rows != null)
+                        table.put(a, rows);
+                }
+                tables.add(table);
+                reached.put(pair.getA1(), dests);
+                if (node != null)
+                    node = prefixCache.put(node, pair, a1Many[i], table, dests);
+            }
+        }
+        for (Map.Entry<Tag, Set<Area>> entry : reached.entrySet())
+            viable.put(entry.getKey(), new HashSet<>(entry.getValue()));
+    }
+
+    /**
+     * Removes the areas that cannot be completed to a full match from the viable areas. The pairs
+     * are processed bottom-up so that the viable destinations of each pair are already known.
+     */
+    private void reduceTables()
+    {
+        for (int i = pairs.length - 1; i >= 0; i--)
+        {
+            final Map<Area, List<AreaConnection>> table = tables.get(i);
+            final Set<Area> dests = viable.get(pairs[i].getA1());
+            for (Iterator<Area> it = viable.get(pairs[i].getA2()).iterator(); it.hasNext(); )
+            {
+                final List<AreaConnection> rows = table.get(it.next());
+                boolean found = false;
+                if (rows != null)
+                {
+                    for (AreaConnection con : rows)
+                    {
+                        if (dests.contains(con.getA1()))
+                        {
+                            found = true;
+                            break;
+                        }
+                    }
+                }
+                if (!found)
+                    it.remove();
+            }
+        }
+    }
+
+    /**
+     * Greedily selects the destination areas of all the pairs for the bound seed area. The selection
+     * is equal to the one of the depth-first search.
+     * @return {@code true} when a complete match has been found
+     */
+    private boolean selectMatch(Map<Tag, List<Area>> bindings, List<AreaConnection> cons)
+    {
+        for (int i = 0; i < pairs.length; i++)
+        {
+            final TagConnection pair = pairs[i];
+            final List<AreaConnection> rows = tables.get(i).get(bindings.get(pair.getA2()).get(0));
+            if (rows == null)
+                return false;
+            final List<Area> added = new ArrayList<>(a1Many[i] ? rows.size() : 1);
+            for (AreaConnection con : rows)
+            {
+                final Area b = con.getA1();
+                final boolean mayUse = a2Many[i] || !isAlreadyUsed(b, matchedAreas); //is B already assigned to another A
+                if (mayUse && !overlapsBinding(bindings, b))
+                {
+                    added.add(b);
+                    cons.add(con);
+                    if (!a1Many[i])
+                        break; //only a single match allowed
+                }
+            }
+            if (added.isEmpty() || !viable.get(pair.getA1()).contains(added.get(0)))
+                return false; //no candidate or the following pairs cannot be matched
+            bindings.put(pair.getA1(), added);
+            if (USE_EARLY_CONSTRAINTS && constraints != null && !matchesBoundConstraints(pa, bindings, constraints, pair.getA1()))
+                return false; //the match cannot be consistent
+        }
+        return true;
+    }
+
+    private boolean overlapsBinding(Map<Tag, List<Area>> bindings, Area a)
+    {
+        for (List<Area> list : bindings.values())
+        {
+            if (AreaUtils.areasOverlap(a, list, Match.MIN_OVERLAP_PERCENTAGE))
+                return true;
+        }
+        return false;
+    }
+
+    private Match createMatch(Map<Tag, List<Area>> bindings, List<AreaConnection> cons)
+    {
+        Match ret = new Match();
+        for (Map.Entry<Tag, List<Area>> entry : bindings.entrySet())
+            ret.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        int ci = 0;
+        for (int i = 0; i < pairs.length; i++)
+        {
+            final int cnt = bindings.get(pairs[i].getA1()).size();
+            for (int j = 0; j < cnt; j++)
+                ret.addAreaConnection(pairs[i], cons.get(ci++), false);
+        }
+        return ret;
+    }
+
+}
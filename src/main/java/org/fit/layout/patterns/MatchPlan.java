@@ -0,0 +1,154 @@
+/**
+ * MatchPlan.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.TagConnection;
+
+/**
+ * A plan of the match search for a connection pattern created by {@link MatchPlanner}. The plan
+ * specifies the order in which the tag connections of the pattern are traversed during the search.
+ * It keeps the original traversal order (given by the order of the connections in the pattern) as well
+ * as the estimates used for planning so that the planning decisions may be explained.
+ */
+public class MatchPlan
+{
+    private TagConnection[] pairs;
+    private Tag seed;
+    private int seedCandidates;
+    private float[] fanOut;
+    private int[] originalOrder;
+    private int[] order;
+    private String note;
+
+
+    /**
+     * Creates a new plan.
+     * @param pairs the tag connections of the pattern in the pattern order
+     * @param seed the seed tag of the search
+     * @param seedCandidates the number of candidate areas for the seed tag
+     * @param fanOut the estimated fan-out of the individual connections (indexed as {@code pairs}) or
+     * {@code null} when the fan-outs have not been estimated because the order cannot be changed
+     * @param originalOrder the original traversal order (indices to {@code pairs}) or {@code null} when
+     * the pattern cannot be completely traversed
+     * @param order the planned traversal order (indices to {@code pairs})  or {@code null} when the original
+     * order should be used
+     * @param note the explanation of the planning result
+     */
+    public MatchPlan(TagConnection[] pairs, Tag seed, int seedCandidates, float[] fanOut,
+            int[] originalOrder, int[] order, String note)
+    {
+        this.pairs = pairs;
+        this.seed = seed;
+        this.seedCandidates = seedCandidates;
+        this.fanOut = fanOut;
+        this.originalOrder = originalOrder;
+        this.order = order;
+        this.note = note;
+    }
+
+    public TagConnection[] getPairs()
+    {
+        return pairs;
+    }
+
+    public Tag getSeed()
+    {
+        return seed;
+    }
+
+    public int getSeedCandidates()
+    {
+        return seedCandidates;
+    }
+
+    /**
+     * Obtains the estimated fan-out of a tag connection: the average number of the candidate destination
+     * areas in the given relation with a candidate source area.
+     * @param pair the index of the connection in the pattern
+     * @return the estimated fan-out or {@code Float.NaN} when the fan-outs have not been estimated
+     */
+    public float getFanOut(int pair)
+    {
+        return (fanOut != null) ? fanOut[pair] : Float.NaN;
+    }
+
+    /**
+     * Obtains the original traversal order given by the order of the connections in the pattern.
+     * @return the indices of the connections in the traversal order or {@code null} when the pattern
+     * cannot be completely traversed
+     */
+    public int[] getOriginalOrder()
+    {
+        return originalOrder;
+    }
+
+    /**
+     * Checks whether the plan changes the traversal order.
+     * @return {@code true} when the planned order should be used
+     */
+    public boolean isReordered()
+    {
+        return order != null;
+    }
+
+    /**
+     * Obtains the traversal order to be used.
+     * @return the indices of the connections in the traversal order or {@code null} when the original
+     * order should be used
+     */
+    public int[] getOrder()
+    {
+        return (order != null) ? order : originalOrder;
+    }
+
+    public String getNote()
+    {
+        return note;
+    }
+
+    /**
+     * Creates a human-readable explanation of the plan.
+     * @return the explanation
+     */
+    public String explain()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("seed ").append(seed).append(" (").append(seedCandidates).append(" candidates)");
+        final int[] used = getOrder();
+        if (used != null)
+        {
+            for (int i = 0; i < used.length; i++)
+            {
+                final int p = used[i];
+                sb.append("\n  ").append(i + 1).append(". ").append(pairs[p]);
+                if (fanOut != null)
+                    sb.append(" fan-out ").append(fanOut[p]);
+                if (order != null && originalOrder[i] != p)
+                    sb.append(" (originally ").append(indexOf(originalOrder, p) + 1).append(".)");
+            }
+        }
+        sb.append("\n  ").append(note);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MatchPlan[" + explain().replace("\n  ", "; ") + "]";
+    }
+
+    private static int indexOf(int[] array, int value)
+    {
+        for (int i = 0; i < array.length; i++)
+        {
+            if (array[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+}
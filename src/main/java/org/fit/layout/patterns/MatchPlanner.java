@@ -0,0 +1,198 @@
+/**
+ * MatchPlanner.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaOccupancySet;
+import org.fit.layout.patterns.model.ConnectionPattern;
+import org.fit.layout.patterns.model.Match;
+import org.fit.layout.patterns.model.TagConnection;
+
+/**
+ * A planner of the match search. The search starts with the first connection of the pattern and
+ * it binds the areas of the connected tags step by step. The planner orders the connections so that
+ * the connections with the lowest estimated fan-out (the average number of the candidate destination
+ * areas for a source area, based on the relation analyzer connections) are traversed first and the
+ * unsuccessful branches of the search are abandoned as soon as possible.
+ *
+ * <p>The seed tag cannot be changed since the connections are always traversed from the source area
+ * ({@code A2}) to the destination area ({@code A1}) and the seed is the only tag from which all
+ * the connections of the pattern may be reached. The order may only be changed when the result of
+ * the search does not depend on it: the pattern must be a tree (each tag except the seed is the destination
+ * of exactly one connection), there must be no dependency matches for the destination tags and the
+ * candidate areas of the destination tags whose mutual order changes must not overlap (otherwise,
+ * the overlap checks could assign an area to a different tag). Otherwise, the plan keeps the original
+ * order and the fan-outs are not estimated at all.
+ */
+public class MatchPlanner
+{
+    private RelationAnalyzer pa;
+    private Map<Tag, Set<Area>> tagAreas;
+    private Map<Tag, Collection<Match>> depMatches;
+
+
+    /**
+     * Creates a planner.
+     * @param pa the relation analyzer used for the search
+     * @param tagAreas the candidate areas for the individual tags
+     * @param depMatches the dependency matches for the tags
+     */
+    public MatchPlanner(RelationAnalyzer pa, Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
+    {
+        this.pa = pa;
+        this.tagAreas = tagAreas;
+        this.depMatches = depMatches;
+    }
+
+    /**
+     * Creates a plan for the given connection pattern.
+     * @param pattern the connection pattern
+     * @return the created plan
+     */
+    public MatchPlan plan(ConnectionPattern pattern)
+    {
+        final TagConnection[] pairs = pattern.toArray(new TagConnection[0]);
+        final Tag seed = pairs[0].getA2();
+        final int seedCandidates = getCandidates(seed).size();
+        //the original order
+        final int[] originalOrder = createOrder(pairs, null, false);
+        if (originalOrder == null)
+            return new MatchPlan(pairs, seed, seedCandidates, null, null, null, "the pattern cannot be traversed from the seed, keeping the original order");
+        //check whether the order may be changed before estimating anything
+        final Set<Tag> destinations = new HashSet<>();
+        destinations.add(seed);
+        for (TagConnection pair : pairs)
+        {
+            if (depMatches.get(pair.getA1()) != null)
+                return new MatchPlan(pairs, seed, seedCandidates, null, originalOrder, null, "dependency matches used for " + pair.getA1() + ", keeping the original order");
+            if (!destinations.add(pair.getA1()))
+                return new MatchPlan(pairs, seed, seedCandidates, null, originalOrder, null, "not a tree pattern (" + pair.getA1() + " is bound repeatedly), keeping the original order");
+        }
+        //estimate the fan-outs
+        final float[] fanOut = new float[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+            fanOut[i] = estimateFanOut(pairs[i]);
+        //the planned order
+        final int[] order = createOrder(pairs, fanOut, true);
+        final int[] position = new int[pairs.length];
+        for (int i = 0; i < order.length; i++)
+            position[order[i]] = i;
+        boolean changed = false;
+        for (int i = 0; i < originalOrder.length; i++)
+        {
+            for (int j = i + 1; j < originalOrder.length; j++)
+            {
+                final int p1 = originalOrder[i];
+                final int p2 = originalOrder[j];
+                if (position[p1] > position[p2]) //the mutual order has changed
+                {
+                    changed = true;
+                    final Tag t1 = pairs[p1].getA1();
+                    final Tag t2 = pairs[p2].getA1();
+                    assert !t1.equals(t2) : "each tag is bound once in a tree pattern";
+                    if (candidatesOverlap(t1, t2))
+                        return new MatchPlan(pairs, seed, seedCandidates, fanOut, originalOrder, null, "the candidates of " + t1 + " and " + t2 + " overlap, keeping the original order");
+                }
+            }
+        }
+        if (changed)
+            return new MatchPlan(pairs, seed, seedCandidates, fanOut, originalOrder, order, "reordered by the fan-out");
+        else
+            return new MatchPlan(pairs, seed, seedCandidates, fanOut, originalOrder, null, "the original order is optimal");
+    }
+
+    //==============================================================================================
+
+    /**
+     * Creates the traversal order of the connections. The next connection is always selected from
+     * the connections whose source tag has been bound already.
+     * @param pairs the connections
+     * @param fanOut the estimated fan-outs of the connections (not used for the original order)
+     * @param planned {@code true} for selecting the connection with the lowest fan-out, {@code false}
+     * for selecting the first one in the pattern order (the original order)
+     * @return the order or {@code null} when the pattern cannot be completely traversed
+     */
+    private int[] createOrder(TagConnection[] pairs, float[] fanOut, boolean planned)
+    {
+        final int[] ret = new int[pairs.length];
+        final boolean[] used = new boolean[pairs.length];
+        final Set<Tag> bound = new HashSet<>();
+        if (depMatches.get(pairs[0].getA2()) == null)
+            bound.add(pairs[0].getA2()); //dependency matches are not bound to the tags
+        for (int step = 0; step < pairs.length; step++)
+        {
+            int next = -1;
+            if (step == 0 && !planned)
+                next = 0;
+            else
+            {
+                for (int i = 0; i < pairs.length; i++)
+                {
+                    if (!used[i] && (bound.contains(pairs[i].getA2()) || (step == 0 && i == 0)))
+                    {
+                        if (next == -1)
+                            next = i;
+                        else if (planned && fanOut[i] < fanOut[next])
+                            next = i;
+                        if (!planned)
+                            break;
+                    }
+                }
+            }
+            if (next == -1)
+                return null;
+            used[next] = true;
+            ret[step] = next;
+            if (depMatches.get(pairs[next].getA1()) == null)
+                bound.add(pairs[next].getA1());
+        }
+        return ret;
+    }
+
+    /**
+     * Estimates the average number of the candidate destination areas in the connection relation
+     * with a candidate source area.
+     */
+    private float estimateFanOut(TagConnection pair)
+    {
+        final Set<Area> sources = getCandidates(pair.getA2());
+        final Set<Area> dests = getCandidates(pair.getA1());
+        if (sources.isEmpty())
+            return 0.0f;
+        final int[] cnt = new int[1];
+        for (Area a : sources)
+        {
+            pa.visitConnections(null, pair.getRelation(), a, -1.0f, (a1, a2, r, weight) -> {
+                if (dests.contains(a1))
+                    cnt[0]++;
+                return true;
+            });
+        }
+        return cnt[0] / (float) sources.size();
+    }
+
+    private boolean candidatesOverlap(Tag t1, Tag t2)
+    {
+        final Set<Area> c1 = getCandidates(t1);
+        final Set<Area> c2 = getCandidates(t2);
+        final AreaOccupancySet index = new AreaOccupancySet((c1.size() > c2.size()) ? c1 : c2);
+        return index.overlaps((c1.size() > c2.size()) ? c2 : c1, Match.MIN_OVERLAP_PERCENTAGE);
+    }
+
+    private Set<Area> getCandidates(Tag tag)
+    {
+        final Set<Area> ret = tagAreas.get(tag);
+        return (ret == null) ? Collections.emptySet() : ret;
+    }
+
+}
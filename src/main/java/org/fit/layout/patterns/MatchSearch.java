@@ -0,0 +1,647 @@
+/**
+ * MatchSearch.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaConnection;
+import org.fit.layout.patterns.model.ConnectionPattern;
+import org.fit.layout.patterns.model.Match;
+import org.fit.layout.patterns.model.MatchResult;
+import org.fit.layout.patterns.model.MatcherConfiguration;
+import org.fit.layout.patterns.model.TagConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A depth-first implementation of the match search. The search starts with the candidate areas
+ * of the seed tag (the source tag of the first connection) and binds the areas of the connected tags
+ * step by step; the matches are selected greedily in the order of the seeds. Instead of copying
+ * the current match and the remaining pairs on every step, the search keeps a single mutable match state (the tag bindings, the sub-matches
+ * and the area connections) that is modified when descending to a candidate and restored when
+ * returning. The search frames are kept on an explicit stack and reused for all the seed areas.
+ * The {@link Match} objects are only created for the complete matches.
+ * When a reordering {@link MatchPlan} is given, the pairs are traversed in the planned order;
+ * the connections of the created matches are still listed in the original order.
+ */
+public class MatchSearch extends BaseMatchSearch
+{
+    private static Logger log = LoggerFactory.getLogger(MatchSearch.class);
+
+    private final Map<Tag, Match[]> depMatches;
+    private TagConnection[] constraintCons;
+    private int[] constraintA1; //tag indices of the constraints
+    private int[] constraintA2;
+    private int[][] tagConstraints; //the constraints that involve the individual tags
+
+    //the pairs and their state
+    private final TagConnection[] pairs;
+    private final int[] pairA1; //tag indices of the pairs
+    private final int[] pairA2;
+    private final boolean[] pairUsed;
+    private int usedCnt;
+    private final int[] order; //the planned order of the pairs or null for the original one
+    private final int[] rank; //the positions of the pairs in the original order
+
+    //the current match state
+    private final Map<Tag, Integer> tagIndex;
+    private final Tag[] tags;
+    private final List<Area>[] bindings;
+    private Match[] subs;
+    private int subCnt;
+    private TagConnection[] conTags;
+    private int[] conPairs;
+    private AreaConnection[] cons;
+    private boolean[] conMany;
+    private int conCnt;
+
+    //the search stack
+    private final SearchFrame[] frames;
+    private int depth;
+
+
+    /**
+     * Creates a new search.
+     * @param matcher the matcher that provides the tag cardinalities
+     * @param conf the configuration whose matches should be found
+     * @param plan the plan of the search or {@code null} for the original order of the pattern connections
+     * @param pa the relation analyzer used for finding the relations
+     * @param dis the style resolver used for assigning the tags to areas
+     * @param tagAreas the candidate areas for the individual tags
+     * @param depMatches the dependency matches for the individual tags
+     */
+    public MatchSearch(Matcher matcher, MatcherConfiguration conf, MatchPlan plan, RelationAnalyzer pa, StyleResolver dis,
+            Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
+    {
+        super(matcher, conf, pa, dis, tagAreas);
+        this.depMatches = new HashMap<>(depMatches.size());
+        for (Map.Entry<Tag, Collection<Match>> entry : depMatches.entrySet())
+            this.depMatches.put(entry.getKey(), entry.getValue().toArray(new Match[0]));
+        //index the tags
+        pairs = conf.getPattern().toArray(new TagConnection[0]);
+        tagIndex = new HashMap<>();
+        pairA1 = new int[pairs.length];
+        pairA2 = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+        {
+            pairA1[i] = indexTag(pairs[i].getA1());
+            pairA2[i] = indexTag(pairs[i].getA2());
+        }
+        if (constraints != null)
+        {
+            for (TagConnection con : constraints)
+            {
+                indexTag(con.getA1());
+                indexTag(con.getA2());
+            }
+        }
+        tags = new Tag[tagIndex.size()];
+        for (Map.Entry<Tag, Integer> entry : tagIndex.entrySet())
+            tags[entry.getValue()] = entry.getKey();
+        pairUsed = new boolean[pairs.length];
+        usedCnt = 0;
+        if (plan != null && plan.isReordered())
+        {
+            order = plan.getOrder();
+            rank = new int[pairs.length];
+            final int[] orig = plan.getOriginalOrder();
+            for (int i = 0; i < orig.length; i++)
+                rank[orig[i]] = i;
+        }
+        else
+        {
+            order = null;
+            rank = null;
+        }
+        if (USE_EARLY_CONSTRAINTS && constraints != null && isBoundOnce())
+            indexConstraints(); //a rebound tag could make an early check fail for a consistent match
+        //the match state
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final List<Area>[] emptyBindings = new List[tags.length];
+        bindings = emptyBindings;
+        subs = new Match[4];
+        subCnt = 0;
+        conTags = new TagConnection[pairs.length + 1];
+        conPairs = new int[pairs.length + 1];
+        cons = new AreaConnection[pairs.length + 1];
+        conMany = new boolean[pairs.length + 1];
+        conCnt = 0;
+        frames = new SearchFrame[pairs.length];
+        depth = 0;
+    }
+
+    @Override
+    public MatchResult run()
+    {
+        final int first = getFirstPair();
+        final TagConnection curPair = pairs[first];
+        pairUsed[first] = true;
+        usedCnt = 1;
+        final Match[] deps = depMatches.get(curPair.getA2());
+        if (deps != null)
+        {
+            for (Match dmatch : deps)
+            {
+                if (dmatch.isDisjointWith(matchedAreas)) //the match does not contain any already matched area
+                {
+                    for (Area a : dmatch.get(curPair.getA2()))
+                    {
+                        pushSub(dmatch);
+                        search(first, a);
+                        subCnt--;
+                    }
+                }
+            }
+        }
+        else
+        {
+            final List<Area> seed = new ArrayList<>(1);
+            seed.add(null);
+            for (Area a : tagAreas.get(curPair.getA2()))
+            {
+                if (!isAlreadyUsed(a, matchedAreas))
+                {
+                    seed.set(0, a);
+                    bindings[pairA2[first]] = seed;
+                    search(first, a);
+                    bindings[pairA2[first]] = null;
+                }
+            }
+        }
+        return new MatchResult(matches, matchedAreas, pa);
+    }
+
+    /**
+     * Finds all the matches that start with the given pair and the seed area in the current state.
+     */
+    private void search(int pair, Area a)
+    {
+        final int base = depth;
+        pushFrame(pair, a);
+        while (depth > base)
+        {
+            final SearchFrame f = frames[depth - 1];
+            if (!advance(f))
+            {
+                depth--; //the frame is exhausted
+                if (depth > base)
+                    undoChild(frames[depth - 1]);
+            }
+        }
+    }
+
+    private void pushFrame(int pair, Area a)
+    {
+        SearchFrame f = frames[depth];
+        if (f == null)
+        {
+            f = new SearchFrame();
+            frames[depth] = f;
+        }
+        depth++;
+        final TagConnection curPair = pairs[pair];
+        f.pair = pair;
+        f.a1Many = matcher.isTagMany(curPair.getA1());
+        f.a2Many = matcher.isTagMany(curPair.getA2());
+        if (f.a2Many)
+            log.error("{} is MANY in {}); this should not happen!", curPair.getA2(), curPair);
+        f.deps = depMatches.get(curPair.getA1());
+        f.inrel = getAreasInBestRelation(pa, a, curPair.getRelation(), curPair.getA2(), curPair.getA1(), f.a1Many, dis);
+        f.done = false;
+        f.depIndex = 0;
+        f.conIndex = 0;
+        f.ref = null;
+    }
+
+    /**
+     * Creates the next child state of the frame and continues the search from it.
+     * @return {@code false} when there are no more candidates in the frame
+     */
+    private boolean advance(SearchFrame f)
+    {
+        final TagConnection curPair = pairs[f.pair];
+        if (f.deps == null)
+        {
+            if (f.done)
+                return false;
+            f.done = true;
+            //the areas to be added
+            final Set<Area> destSet = tagAreas.get(curPair.getA1());
+            f.added.clear();
+            f.addedCons.clear();
+            for (AreaConnection con : f.inrel)
+            {
+                Area b = con.getA1();
+                boolean mayUse = f.a2Many || !isAlreadyUsed(b, matchedAreas); //check repeated match of a single area depending on cardinality (is B already assigned to another A)
+                if (mayUse && destSet.contains(b) && !overlapsArea(b))
+                {
+                    f.added.add(b);
+                    f.addedCons.add(con);
+                    if (!f.a1Many)
+                        break; //only a single match allowed
+                }
+            }
+            if (f.added.isEmpty())
+                return false;
+            //create the new candidate match
+            f.subMark = subCnt;
+            f.conMark = conCnt;
+            f.bindTag = pairA1[f.pair];
+            f.prevBinding = bindings[f.bindTag];
+            bindings[f.bindTag] = f.added;
+            for (AreaConnection con : f.addedCons)
+                pushConnection(f.pair, con, false);
+            if (tagConstraints == null || matchesBoundConstraints(f.bindTag))
+                expandChild(f);
+            else
+                undoChild(f); //the branch cannot produce a consistent match
+            return true;
+        }
+        else
+        {
+            //look for dependency matches related to the current area
+            while (f.depIndex < f.deps.length)
+            {
+                final Match match = f.deps[f.depIndex];
+                if (f.ref == null)
+                {
+                    if (match.isDisjointWith(matchedAreas) && isDisjointWith(match))
+                        f.ref = match.get(curPair.getA1());
+                    else
+                    {
+                        f.depIndex++;
+                        continue;
+                    }
+                }
+                //is some of the referenced areas in the relationship?
+                while (f.conIndex < f.inrel.size())
+                {
+                    final AreaConnection con = f.inrel.get(f.conIndex++);
+                    if (f.ref.contains(con.getA1()))
+                    {
+                        Area b = con.getA1();
+                        boolean mayUse = f.a1Many || !isAlreadyUsed(b, matchedAreas); //check repeated match of a single area depending on cardinality (is B already assigned to another A)
+                        if (mayUse && !containsArea(b))
+                        {
+                            //create the new candidate match
+                            f.subMark = subCnt;
+                            f.conMark = conCnt;
+                            f.bindTag = -1;
+                            pushSub(match);
+                            pushConnection(f.pair, con, f.a1Many);
+                            expandChild(f);
+                            return true;
+                        }
+                    }
+                }
+                f.depIndex++;
+                f.conIndex = 0;
+                f.ref = null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Continues the search from the current state (created by the given frame): either a new frame
+     * is pushed for the next pair or the complete match is processed.
+     */
+    private void expandChild(SearchFrame f)
+    {
+        f.childPair = -1;
+        if (usedCnt < pairs.length) //some pairs are remaining -- continue
+        {
+            //find the next pair
+            if (order != null)
+                f.childPair = order[usedCnt]; //the planned order guarantees a connected pair
+            else
+            {
+                for (int i = 0; i < pairs.length; i++)
+                {
+                    if (!pairUsed[i] && bindings[pairA2[i]] != null) //found a connected pair
+                    {
+                        f.childPair = i;
+                        break;
+                    }
+                }
+            }
+            if (f.childPair != -1)
+            {
+                pairUsed[f.childPair] = true;
+                usedCnt++;
+                final List<Area> seed = bindings[pairA2[f.childPair]];
+                pushFrame(f.childPair, seed.isEmpty() ? null : seed.get(0));
+                return; //the state will be restored when the new frame is exhausted
+            }
+            else
+                log.error("No next pair found but some are remaining?");
+        }
+        else //no pairs remaining -- a complete match
+        {
+            if (constraints == null || matchesConstraints())
+            {
+                final Match match = createMatch();
+                matches.add(match);
+                match.addAllAreasTo(matchedAreas);
+            }
+            else if (log.isDebugEnabled())
+                log.debug("Skipping inconsistent match: {}", createMatch());
+        }
+        undoChild(f);
+    }
+
+    /**
+     * Restores the state before the last child state of the frame has been created.
+     */
+    private void undoChild(SearchFrame f)
+    {
+        if (f.childPair != -1)
+        {
+            pairUsed[f.childPair] = false;
+            usedCnt--;
+            f.childPair = -1;
+        }
+        if (f.bindTag != -1)
+        {
+            bindings[f.bindTag] = f.prevBinding;
+            f.bindTag = -1;
+            f.prevBinding = null;
+        }
+        for (int i = f.subMark; i < subCnt; i++)
+            subs[i] = null;
+        subCnt = f.subMark;
+        for (int i = f.conMark; i < conCnt; i++)
+            cons[i] = null;
+        conCnt = f.conMark;
+    }
+
+    //==========================================================================================
+
+    /**
+     * Obtains the index of the pair whose second tag is used as the seed of the search.
+     */
+    private int getFirstPair()
+    {
+        return (order != null) ? order[0] : 0;
+    }
+
+    /**
+     * Checks whether each tag is bound at most once during the search (the pattern is a tree rooted
+     * in the seed). Otherwise, a later pair may replace the areas bound to a tag.
+     */
+    private boolean isBoundOnce()
+    {
+        final boolean[] bound = new boolean[tags.length];
+        bound[pairA2[getFirstPair()]] = true;
+        for (int i = 0; i < pairs.length; i++)
+        {
+            if (bound[pairA1[i]])
+                return false;
+            bound[pairA1[i]] = true;
+        }
+        return true;
+    }
+
+    private void indexConstraints()
+    {
+        constraintCons = constraints.toArray(new TagConnection[0]);
+        constraintA1 = new int[constraintCons.length];
+        constraintA2 = new int[constraintCons.length];
+        final int[] cnt = new int[tags.length];
+        for (int i = 0; i < constraintCons.length; i++)
+        {
+            constraintA1[i] = tagIndex.get(constraintCons[i].getA1());
+            constraintA2[i] = tagIndex.get(constraintCons[i].getA2());
+            cnt[constraintA1[i]]++;
+            if (constraintA2[i] != constraintA1[i])
+                cnt[constraintA2[i]]++;
+        }
+        tagConstraints = new int[tags.length][];
+        for (int t = 0; t < tags.length; t++)
+            tagConstraints[t] = new int[cnt[t]];
+        Arrays.fill(cnt, 0);
+        for (int i = 0; i < constraintCons.length; i++)
+        {
+            tagConstraints[constraintA1[i]][cnt[constraintA1[i]]++] = i;
+            if (constraintA2[i] != constraintA1[i])
+                tagConstraints[constraintA2[i]][cnt[constraintA2[i]]++] = i;
+        }
+    }
+
+    private int indexTag(Tag tag)
+    {
+        Integer index = tagIndex.get(tag);
+        if (index == null)
+        {
+            index = tagIndex.size();
+            tagIndex.put(tag, index);
+        }
+        return index;
+    }
+
+    private void pushSub(Match sub)
+    {
+        if (subCnt == subs.length)
+            subs = Arrays.copyOf(subs, subs.length * 2);
+        subs[subCnt++] = sub;
+    }
+
+    private void pushConnection(int pair, AreaConnection con, boolean many)
+    {
+        if (conCnt == cons.length)
+        {
+            conTags = Arrays.copyOf(conTags, conCnt * 2);
+            conPairs = Arrays.copyOf(conPairs, conCnt * 2);
+            cons = Arrays.copyOf(cons, conCnt * 2);
+            conMany = Arrays.copyOf(conMany, conCnt * 2);
+        }
+        conTags[conCnt] = pairs[pair];
+        conPairs[conCnt] = pair;
+        cons[conCnt] = con;
+        conMany[conCnt] = many;
+        conCnt++;
+    }
+
+    /**
+     * Equivalent of {@link Match#getSingle(Tag)} for the current state.
+     */
+    private Area getSingle(Tag tag)
+    {
+        final Integer index = tagIndex.get(tag);
+        if (index != null)
+        {
+            final List<Area> list = bindings[index];
+            if (list != null && !list.isEmpty())
+                return list.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Equivalent of {@link Match#containsArea(Area)} for the current state.
+     */
+    private boolean containsArea(Area a)
+    {
+        for (List<Area> list : bindings)
+        {
+            if (list != null && list.contains(a))
+                return true;
+        }
+        for (int i = 0; i < subCnt; i++)
+        {
+            if (subs[i].containsArea(a))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Equivalent of {@link Match#overlapsArea(Area)} for the current state.
+     */
+    private boolean overlapsArea(Area a)
+    {
+        for (List<Area> list : bindings)
+        {
+            if (list != null && AreaUtils.areasOverlap(a, list, Match.MIN_OVERLAP_PERCENTAGE))
+                return true;
+        }
+        for (int i = 0; i < subCnt; i++)
+        {
+            if (subs[i].overlapsArea(a))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Equivalent of {@link Match#isDisjointWith(Match)} for the current state.
+     */
+    private boolean isDisjointWith(Match other)
+    {
+        for (List<Area> list : bindings)
+        {
+            if (list != null)
+            {
+                for (Area a : list)
+                {
+                    if (other.overlapsArea(a))
+                        return false;
+                }
+            }
+        }
+        for (int i = 0; i < subCnt; i++)
+        {
+            if (!subs[i].isDisjointWith(other))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Equivalent of {@link BaseMatchSearch#matchesConstraints(RelationAnalyzer, Match, ConnectionPattern)}
+     * for the current state.
+     */
+    private boolean matchesConstraints()
+    {
+        for (TagConnection con : constraints)
+        {
+            final Area a1 = getSingle(con.getA1());
+            final Area a2 = getSingle(con.getA2());
+            if (a1 == null || a2 == null || !pa.getRelationsFor(a1, a2, -1.0f).contains(con.getRelation()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Equivalent of {@link BaseMatchSearch#matchesBoundConstraints(RelationAnalyzer, Map, ConnectionPattern, Tag)}
+     * for the current state.
+     */
+    private boolean matchesBoundConstraints(int tag)
+    {
+        for (int ci : tagConstraints[tag])
+        {
+            final List<Area> l1 = bindings[constraintA1[ci]];
+            final List<Area> l2 = bindings[constraintA2[ci]];
+            if (l1 != null && l2 != null)
+            {
+                if (l1.isEmpty() || l2.isEmpty() || !pa.getRelationsFor(l1.get(0), l2.get(0), -1.0f).contains(constraintCons[ci].getRelation()))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a match object from the current state.
+     */
+    private Match createMatch()
+    {
+        Match ret = new Match();
+        for (int i = 0; i < bindings.length; i++)
+        {
+            if (bindings[i] != null)
+                ret.put(tags[i], new ArrayList<>(bindings[i]));
+        }
+        for (int i = 0; i < subCnt; i++)
+            ret.addSubMatch(subs[i]);
+        if (order == null)
+        {
+            for (int i = 0; i < conCnt; i++)
+                ret.addAreaConnection(conTags[i], cons[i], conMany[i]);
+        }
+        else
+        {
+            //list the connections in the original order of the pairs
+            for (int r = 0; r < pairs.length; r++)
+            {
+                for (int i = 0; i < conCnt; i++)
+                {
+                    if (rank[conPairs[i]] == r)
+                        ret.addAreaConnection(conTags[i], cons[i], conMany[i]);
+                }
+            }
+        }
+        return ret;
+    }
+
+    //==========================================================================================
+
+    /**
+     * A reusable frame of the search stack that corresponds to a single step of the search: binding
+     * the destination areas of a pair for a source area.
+     */
+    private static class SearchFrame
+    {
+        int pair; //the index of the current pair
+        boolean a1Many;
+        boolean a2Many;
+        Match[] deps; //the dependency matches for the destination tag or null
+        List<AreaConnection> inrel; //the candidate connections
+        //the iteration state
+        boolean done;
+        int depIndex;
+        int conIndex;
+        List<Area> ref;
+        final List<Area> added = new ArrayList<>();
+        final List<AreaConnection> addedCons = new ArrayList<>();
+        //the changes made for the current child state
+        int childPair = -1;
+        int bindTag = -1;
+        List<Area> prevBinding;
+        int subMark;
+        int conMark;
+    }
+
+}
@@ -0,0 +1,365 @@
+/**
+ * PatternPrefixCache.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.patterns.model.AreaConnection;
+import org.fit.layout.patterns.model.TagConnection;
+
+/**
+ * A cache of the partial results of the match search shared among the connection patterns with
+ * common prefixes. The cache is a trie of the pattern prefixes (the tag connections in the traversal
+ * order) with a separate root for each style resolver and relation analyzer. Each node keeps
+ * the relation table of the last connection of the prefix (the best connections of the reachable
+ * source areas to the candidate destination areas) and the destination areas reachable through
+ * the prefix. These results do not depend on the rest of the pattern, so the configurations that
+ * differ in the later connections only (e.g. the relation chosen for a single pair or the added
+ * consistency constraints) extend the cached prefix instead of building it again.
+ *
+ * <p>The size of the cache is limited by the total number of the cached table rows and destination
+ * areas; the least recently used nodes are removed first together with their subtrees. The number
+ * of the roots is limited as well since each root keeps its relation analyzer.
+ * The cache may be shared by the searches running in parallel.
+ */
+public class PatternPrefixCache
+{
+    /** Default maximal number of cached table rows and destination areas */
+    public static final int DEFAULT_CAPACITY = 200000;
+    /** Default maximal number of the roots (style resolver and relation analyzer combinations) */
+    public static final int DEFAULT_ROOT_CAPACITY = 16;
+
+    private int capacity;
+    private int rootCapacity;
+    private Map<RootKey, PrefixNode> roots;
+    private Map<PrefixNode, PrefixNode> lru;
+    private int size = 0;
+    private int reads = 0;
+    private int hits = 0;
+    private int evictions = 0;
+
+
+    public PatternPrefixCache()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_ROOT_CAPACITY);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param capacity the maximal number of cached table rows and destination areas
+     * @param rootCapacity the maximal number of the roots
+     */
+    public PatternPrefixCache(int capacity, int rootCapacity)
+    {
+        this.capacity = capacity;
+        this.rootCapacity = rootCapacity;
+        roots = new LinkedHashMap<>(16, 0.75f, true);
+        lru = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtains the root of the trie (the empty prefix) for the given style resolver and relation analyzer.
+     * The candidate areas of the tags are assumed to be determined by the resolver and the areas
+     * of the analyzer.
+     * @param dis the style resolver used for the search
+     * @param pa the relation analyzer used for the search
+     * @return the root node
+     */
+    public synchronized PrefixNode getRoot(StyleResolver dis, RelationAnalyzer pa)
+    {
+        final RootKey key = new RootKey(dis, pa);
+        PrefixNode ret = roots.get(key);
+        if (ret == null)
+        {
+            ret = new PrefixNode(null, null, dis, pa, null, null);
+            roots.put(key, ret);
+            while (roots.size() > rootCapacity)
+            {
+                final PrefixNode eldest = roots.values().iterator().next();
+                evictions++;
+                roots.remove(new RootKey(eldest.dis, eldest.pa));
+                remove(eldest);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the node that extends the prefix of the given node with a connection.
+     * @param parent the node of the prefix
+     * @param pair the next connection
+     * @param a1Many {@code true} when multiple destination areas are allowed for the connection
+     * @return the node or {@code null} when not cached
+     */
+    public synchronized PrefixNode get(PrefixNode parent, TagConnection pair, boolean a1Many)
+    {
+        reads++;
+        final PrefixNode ret = (parent.children == null) ? null : parent.children.get(new PrefixKey(pair, a1Many));
+        if (ret != null)
+        {
+            hits++;
+            lru.get(ret); //update the access order
+        }
+        return ret;
+    }
+
+    /**
+     * Stores the results for a prefix extended with a connection. When the parent node has been
+     * removed from the cache in the meantime, the results are not stored.
+     * @param parent the node of the prefix
+     * @param pair the next connection
+     * @param a1Many {@code true} when multiple destination areas are allowed for the connection
+     * @param table the relation table of the connection
+     * @param destinations the destination areas reachable through the extended prefix
+     * @return the node of the extended prefix
+     */
+    public synchronized PrefixNode put(PrefixNode parent, TagConnection pair, boolean a1Many,
+            Map<Area, List<AreaConnection>> table, Set<Area> destinations)
+    {
+        final PrefixKey key = new PrefixKey(pair, a1Many);
+        final PrefixNode ret = new PrefixNode(parent, key, parent.dis, parent.pa,
+                Collections.unmodifiableMap(table), Collections.unmodifiableSet(destinations));
+        if (!parent.removed)
+        {
+            if (parent.children == null)
+                parent.children = new HashMap<>();
+            final PrefixNode prev = parent.children.put(key, ret);
+            if (prev != null)
+                remove(prev);
+            lru.put(ret, ret);
+            size += ret.cost;
+            while (size > capacity && !lru.isEmpty())
+            {
+                evictions++;
+                evict(lru.keySet().iterator().next());
+            }
+        }
+        else
+            ret.removed = true;
+        return ret;
+    }
+
+    /**
+     * Removes all the cached results.
+     */
+    public synchronized void clear()
+    {
+        for (PrefixNode node : roots.values())
+            node.removed = true;
+        for (PrefixNode node : lru.keySet())
+            node.removed = true;
+        roots.clear();
+        lru.clear();
+        size = 0;
+    }
+
+    //==========================================================================================
+
+    /**
+     * Obtains the number of cached prefixes.
+     */
+    public synchronized int size()
+    {
+        return lru.size();
+    }
+
+    /**
+     * Obtains the total number of cached table rows and destination areas.
+     */
+    public synchronized int getCachedSize()
+    {
+        return size;
+    }
+
+    public synchronized int getReads()
+    {
+        return reads;
+    }
+
+    public synchronized int getHits()
+    {
+        return hits;
+    }
+
+    public synchronized int getEvictions()
+    {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "PatternPrefixCache[" + lru.size() + " prefixes, " + size + " rows, "
+                + reads + " reads, " + hits + " hits, " + evictions + " evictions]";
+    }
+
+    //==========================================================================================
+
+    /**
+     * Removes a node with its subtree and detaches it from its parent.
+     */
+    private void evict(PrefixNode node)
+    {
+        final PrefixNode parent = node.parent;
+        parent.children.remove(node.key);
+        remove(node);
+        if (parent.parent == null && parent.children.isEmpty())
+        {
+            //remove the empty root
+            parent.removed = true;
+            roots.remove(new RootKey(parent.dis, parent.pa));
+        }
+    }
+
+    /**
+     * Removes a node with its subtree from the cache.
+     */
+    private void remove(PrefixNode node)
+    {
+        final List<PrefixNode> stack = new ArrayList<>();
+        stack.add(node);
+        while (!stack.isEmpty())
+        {
+            final PrefixNode cur = stack.remove(stack.size() - 1);
+            cur.removed = true;
+            if (lru.remove(cur) != null)
+                size -= cur.cost;
+            if (cur.children != null)
+                stack.addAll(cur.children.values());
+        }
+    }
+
+    //==========================================================================================
+
+    /**
+     * A node of the trie that corresponds to a single pattern prefix.
+     */
+    public static class PrefixNode
+    {
+        private final PrefixNode parent;
+        private final PrefixKey key;
+        private final StyleResolver dis;
+        private final RelationAnalyzer pa;
+        private final Map<Area, List<AreaConnection>> table;
+        private final Set<Area> destinations;
+        private final int cost;
+        private Map<PrefixKey, PrefixNode> children;
+        private volatile boolean removed;
+
+        private PrefixNode(PrefixNode parent, PrefixKey key, StyleResolver dis, RelationAnalyzer pa,
+                Map<Area, List<AreaConnection>> table, Set<Area> destinations)
+        {
+            this.parent = parent;
+            this.key = key;
+            this.dis = dis;
+            this.pa = pa;
+            this.table = table;
+            this.destinations = destinations;
+            int c = 1;
+            if (table != null)
+            {
+                for (List<AreaConnection> rows : table.values())
+                    c += rows.size();
+            }
+            if (destinations != null)
+                c += destinations.size();
+            cost = c;
+        }
+
+        /**
+         * Obtains the relation table of the last connection of the prefix: the best connections
+         * of the reachable source areas to the candidate destination areas.
+         * @return an unmodifiable table
+         */
+        public Map<Area, List<AreaConnection>> getTable()
+        {
+            return table;
+        }
+
+        /**
+         * Obtains the destination areas of the last connection reachable through the prefix.
+         * @return an unmodifiable set of areas
+         */
+        public Set<Area> getDestinations()
+        {
+            return destinations;
+        }
+    }
+
+    private static class RootKey
+    {
+        private StyleResolver dis;
+        private RelationAnalyzer pa;
+
+        public RootKey(StyleResolver dis, RelationAnalyzer pa)
+        {
+            this.dis = dis;
+            this.pa = pa;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(dis) + System.identityHashCode(pa);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            RootKey other = (RootKey) obj;
+            return dis == other.dis && pa == other.pa;
+        }
+    }
+
+    private static class PrefixKey
+    {
+        private TagConnection pair;
+        private boolean a1Many;
+
+        public PrefixKey(TagConnection pair, boolean a1Many)
+        {
+            this.pair = pair;
+            this.a1Many = a1Many;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + (a1Many ? 1231 : 1237);
+            result = prime * result + ((pair == null) ? 0 : pair.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            PrefixKey other = (PrefixKey) obj;
+            if (a1Many != other.a1Many) return false;
+            if (pair == null)
+            {
+                if (other.pair != null) return false;
+            }
+            else if (!pair.equals(other.pair)) return false;
+            return true;
+        }
+    }
+
+}
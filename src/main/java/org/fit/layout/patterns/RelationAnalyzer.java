@@ -13,6 +13,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.fit.layout.impl.AreaListGridTopology;
 import org.fit.layout.model.Area;
@@ -20,6 +21,8 @@ import org.fit.layout.model.AreaTopology;
 import org.fit.layout.model.Tag;
 import org.fit.layout.patterns.model.AreaConnection;
 import org.fit.layout.patterns.model.AreaConnectionList;
+import org.fit.layout.patterns.model.AreaConnectionStore;
+import org.fit.layout.patterns.model.AreaConnectionVisitor;
 import org.fit.layout.patterns.model.TagConnection;
 import org.fit.layout.patterns.model.TagConnectionList;
 
@@ -30,6 +33,8 @@ import org.fit.layout.patterns.model.TagConnectionList;
 public abstract class RelationAnalyzer
 {
     public static final float MIN_RELATION_WEIGHT = 0.1f;
+    /** Store the connections in a compact primitive store instead of connection objects with indices */
+    private static final boolean USE_COMPACT_STORE = true;
     
     private List<Area> areas;
     private AreaTopology topology;
@@ -40,11 +45,23 @@ public abstract class RelationAnalyzer
     private Map<Area, Collection<AreaConnection>> indexA1;
     private Map<Area, Collection<AreaConnection>> indexA2;
     private Map<Relation, Collection<AreaConnection>> indexR;
+    private Map<Relation, Float> maxWeights;
+    
+    //compact connection store used instead of the connection list and the indices
+    private boolean compact;
+    private AreaConnectionStore store;
+    private volatile boolean initialized;
+    
+    //best source tables valid for a single style resolver
+    private Map<Area, Integer> areaIds;
+    private TagResolver tableResolver;
+    private Map<Relation, Map<Tag, BestSourceTable>> bestSourceTables;
     
     public RelationAnalyzer(List<Area> areas)
     {
         this.areas = areas;
         topology = new AreaListGridTopology(areas);
+        compact = USE_COMPACT_STORE;
     }
 
     public abstract List<Relation> getAnalyzedRelations();
@@ -65,8 +82,8 @@ public abstract class RelationAnalyzer
      */
     public Set<Area> getSourceAreas()
     {
-        getAreaConnections();
-        return indexA2.keySet();
+        initConnections();
+        return compact ? store.getSecondAreas() : indexA2.keySet();
     }
     
     /**
@@ -75,8 +92,8 @@ public abstract class RelationAnalyzer
      */
     public Set<Area> getDestinationAreas()
     {
-        getAreaConnections();
-        return indexA1.keySet();
+        initConnections();
+        return compact ? store.getFirstAreas() : indexA1.keySet();
     }
     
     /**
@@ -85,8 +102,8 @@ public abstract class RelationAnalyzer
      */
     public Set<Relation> getDistinctRelations()
     {
-        getAreaConnections();
-        return indexR.keySet();
+        initConnections();
+        return compact ? store.getRelations() : indexR.keySet();
     }
     
     public AreaTopology getTopology()
@@ -94,27 +111,96 @@ public abstract class RelationAnalyzer
         return topology;
     }
 
+    /**
+     * Obtains the list of all the area connections. When the compact store is used, the list
+     * is created on the first call.
+     * @return the list of connections
+     */
     public AreaConnectionList getAreaConnections()
     {
-        if (areaConnections == null)
+        initConnections();
+        synchronized (this)
         {
-            areaConnections = new AreaConnectionList();
-            indexA1 = new HashMap<>();
-            indexA2 = new HashMap<>();
-            indexR = new HashMap<>();
-            addConnections();
+            if (areaConnections == null) //compact store used, create the list
+                areaConnections = new AreaConnectionList(store.asList());
+            return areaConnections;
+        }
+    }
+    
+    /**
+     * Obtains the compact connection store.
+     * @return the store or {@code null} when the compact store is not used
+     */
+    public AreaConnectionStore getConnectionStore()
+    {
+        initConnections();
+        return store;
+    }
+    
+    /**
+     * Creates all the connections when they have not been created yet. The analyzer may be shared
+     * by parallel threads; the connections are created only once.
+     */
+    protected void initConnections()
+    {
+        if (!initialized)
+        {
+            synchronized (this)
+            {
+                if (!initialized)
+                {
+                    if (compact)
+                    {
+                        store = new AreaConnectionStore();
+                        addConnections();
+                        store.freeze();
+                    }
+                    else
+                    {
+                        areaConnections = new AreaConnectionList();
+                        indexA1 = new HashMap<>();
+                        indexA2 = new HashMap<>();
+                        indexR = new HashMap<>();
+                        maxWeights = new HashMap<>();
+                        addConnections();
+                    }
+                    initialized = true;
+                }
+            }
         }
-        return areaConnections;
     }
     
     protected void addAreaConnection(AreaConnection con)
     {
+        if (compact)
+        {
+            store.add(con);
+            return;
+        }
         //add to the list
         areaConnections.add(con);
         //add to all the indices
         addToIndex(indexA1, con.getA1(), con);
         addToIndex(indexA2, con.getA2(), con);
         addToIndex(indexR, con.getRelation(), con);
+        //update the maximal weight
+        Float max = maxWeights.get(con.getRelation());
+        if (max == null || max < con.getWeight())
+            maxWeights.put(con.getRelation(), con.getWeight());
+    }
+    
+    /**
+     * Obtains the maximal weight of the area connections with the given relation.
+     * @param r the relation
+     * @return the maximal weight or 0 when there are no connections with the given relation
+     */
+    public float getMaxWeight(Relation r)
+    {
+        initConnections();
+        if (compact)
+            return store.getMaxWeight(r);
+        Float max = maxWeights.get(r);
+        return (max == null) ? 0.0f : max;
     }
     
     /**
@@ -127,6 +213,10 @@ public abstract class RelationAnalyzer
      */
     public Collection<AreaConnection> getConnections(Area dest, Relation r, Area src, float minWeight)
     {
+        initConnections();
+        if (compact)
+            return store.findConnections(dest, r, src, minWeight);
+        
         Collection<AreaConnection> all = getAreaConnections();
         int iused = 0;
         if (dest != null)
@@ -189,6 +279,54 @@ public abstract class RelationAnalyzer
         return ret;
     }
     
+    /**
+     * Visits the area connections based on the given criteria without creating the result collection.
+     * When the relation and an area are specified, the connections are visited in the order of decreasing
+     * weight and the scan ends as soon as the weights fall to {@code minWeight}.
+     * @param dest the source area or {@code null} for any
+     * @param r the relation or {@code null} for any
+     * @param src the destination area or {@code null} for any
+     * @param minWeight the minimal weight of the connection or a negative value for any
+     * @param visitor the visitor called for the connections
+     * @return {@code false} when the scan has been stopped by the visitor, {@code true} otherwise
+     */
+    public boolean visitConnections(Area dest, Relation r, Area src, float minWeight, AreaConnectionVisitor visitor)
+    {
+        initConnections();
+        if (compact)
+            return store.visit(dest, r, src, minWeight, visitor);
+        
+        List<AreaConnection> conns = (List<AreaConnection>) getConnections(dest, r, src, minWeight);
+        if (r != null && (dest != null || src != null))
+            conns.sort((c1, c2) -> Float.compare(c2.getWeight(), c1.getWeight()));
+        for (AreaConnection con : conns)
+        {
+            if (!visitor.visit(con.getA1(), con.getA2(), con.getRelation(), con.getWeight()))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Checks whether there exists an area connection based on the given criteria.
+     * @param dest the source area or {@code null} for any
+     * @param r the relation or {@code null} for any
+     * @param src the destination area or {@code null} for any
+     * @param minWeight the minimal weight of the connection or a negative value for any
+     * @return {@code true} when a corresponding connection exists
+     */
+    public boolean hasConnection(Area dest, Relation r, Area src, float minWeight)
+    {
+        initConnections();
+        if (compact && r != null && (dest != null || src != null))
+        {
+            final float max = store.getMaxWeight(dest, r, src);
+            return (minWeight < 0) ? (max != Float.NEGATIVE_INFINITY) : (max > minWeight);
+        }
+        else
+            return !visitConnections(dest, r, src, minWeight, (a1, a2, rel, w) -> false);
+    }
+    
     /**
      * Obtains all the area that are in the given relation with the given area.
      * I.e. where the destination is {@code a}. 
@@ -200,11 +338,20 @@ public abstract class RelationAnalyzer
     public List<Area> getAreasInRelation(Area a, Relation r)
     {
         List<Area> ret = new ArrayList<Area>();
-        for (AreaConnection con : getAreaConnections())
+        initConnections();
+        if (compact)
+        {
+            for (int ci : store.find(null, r, a, -1.0f))
+                ret.add(store.getA1(ci));
+        }
+        else
         {
-            if (con.getA2().equals(a) && con.getRelation().equals(r))
+            for (AreaConnection con : getAreaConnections())
             {
-                ret.add(con.getA1());
+                if (con.getA2().equals(a) && con.getRelation().equals(r))
+                {
+                    ret.add(con.getA1());
+                }
             }
         }
         return ret;
@@ -225,13 +372,45 @@ public abstract class RelationAnalyzer
         for (AreaConnection cand : dest)
         {
             //find the source nodes that are closer
-            Collection<AreaConnection> better = getConnections(cand.getA1(), r, null, cand.getWeight());
-            if (better.isEmpty())
+            if (!hasConnection(cand.getA1(), r, null, cand.getWeight()))
                 ret.add(cand.getA1()); //a1 has no "better" source area, use it
         }
         return ret;
     }
     
+    /**
+     * Obtains a table of the best source areas for the given relation and source tag where the tags
+     * are assigned using the given resolver. The tables are created on demand and they are kept until
+     * a different resolver is used.
+     * @param r the relation
+     * @param srcTag the tag required for the source areas ({@code A2})
+     * @param dis the resolver used for assigning the tags
+     * @return the table
+     */
+    public BestSourceTable getBestSourceTable(Relation r, Tag srcTag, TagResolver dis)
+    {
+        final Map<Relation, Map<Tag, BestSourceTable>> tables;
+        final Map<Area, Integer> ids;
+        synchronized (this)
+        {
+            if (tableResolver != dis)
+            {
+                tableResolver = dis;
+                bestSourceTables = new ConcurrentHashMap<>();
+            }
+            if (areaIds == null)
+            {
+                areaIds = new HashMap<>(areas.size());
+                for (Area a : areas)
+                    areaIds.putIfAbsent(a, areaIds.size());
+            }
+            tables = bestSourceTables;
+            ids = areaIds;
+        }
+        return tables.computeIfAbsent(r, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(srcTag, k -> new BestSourceTable(this, ids, r, srcTag, dis));
+    }
+    
     /**
      * Finds all relations between a pair of areas in the page.
      * @param a1 the first area
@@ -241,48 +420,50 @@ public abstract class RelationAnalyzer
      */
     public Set<Relation> getRelationsFor(Area a1, Area a2, float minWeight)
     {
-        Collection<AreaConnection> conns = getConnections(a1, null, a2, minWeight);
-        Set<Relation> ret = new HashSet<>();
-        for (AreaConnection con : conns)
-            ret.add(con.getRelation());
+        final Set<Relation> ret = new HashSet<>();
+        visitConnections(a1, null, a2, minWeight, (c1, c2, r, w) -> {
+            ret.add(r);
+            return true;
+        });
         return ret;
     }
     
-    public TagConnectionList getTagConnections()
+    public synchronized TagConnectionList getTagConnections()
     {
         if (tagConnections == null)
         {
-            tagConnections = new TagConnectionList();
-            for (AreaConnection ac : getAreaConnections())
-            {
-                final Set<Tag> srcTags = ac.getA1().getTags().keySet();
-                final Set<Tag> dstTags = ac.getA2().getTags().keySet();
+            final TagConnectionList list = new TagConnectionList();
+            visitConnections(null, null, null, -1.0f, (a1, a2, r, w) -> {
+                final Set<Tag> srcTags = a1.getTags().keySet();
+                final Set<Tag> dstTags = a2.getTags().keySet();
                 if (!srcTags.isEmpty() && !dstTags.isEmpty())
                 {
                     for (Tag src : srcTags)
                         for (Tag dest : dstTags)
-                            tagConnections.add(new TagConnection(src, dest, ac.getRelation(), ac.getWeight()));
+                            list.add(new TagConnection(src, dest, r, w));
                 }
-            }
+                return true;
+            });
+            tagConnections = list;
         }
         return tagConnections;
     }
     
     public TagConnectionList getTagConnections(StyleResolver dis)
     {
-        TagConnectionList ret = new TagConnectionList();
-        for (AreaConnection ac : getAreaConnections())
-        {
-            final Set<Tag> srcTags = dis.getAreaTags(ac.getA1());
-            final Set<Tag> destTags = dis.getAreaTags(ac.getA2());
+        final TagConnectionList ret = new TagConnectionList();
+        visitConnections(null, null, null, -1.0f, (a1, a2, r, w) -> {
+            final Set<Tag> srcTags = dis.getAreaTags(a1);
+            final Set<Tag> destTags = dis.getAreaTags(a2);
             for (Tag src : srcTags)
             {
                 for (Tag dest : destTags)
                 {
-                    ret.add(new TagConnection(src, dest, ac.getRelation(), ac.getWeight()));
+                    ret.add(new TagConnection(src, dest, r, w));
                 }
             }
-        }
+            return true;
+        });
         return ret;
     }
 
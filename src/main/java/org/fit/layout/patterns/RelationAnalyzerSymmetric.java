@@ -6,7 +6,9 @@
 package org.fit.layout.patterns;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -53,26 +55,47 @@ public class RelationAnalyzerSymmetric extends RelationAnalyzer
     protected void addConnections()
     {
         final List<Area> areas = getAreas();
-        addSameLineConnections(areas);
+        final IntervalIndex lineIndex = createLineIndex(areas);
+        addSameLineConnections(areas, lineIndex);
         addBelowAboveConnections(areas);
-        addLineBelowRelations(areas);
+        addLineBelowRelations(areas, lineIndex);
         addUnderHeadingRelations(areas);
     }
+    
+    /**
+     * Creates an index of the vertical extents of the areas. The areas on the same line
+     * (see {@link AreaUtils#isOnSameLine(Rectangular, Rectangular)}) always overlap vertically.
+     * @param areas the list of areas
+     * @return the created index
+     */
+    private IntervalIndex createLineIndex(List<Area> areas)
+    {
+        final int[] y1 = new int[areas.size()];
+        final int[] y2 = new int[areas.size()];
+        for (int i = 0; i < areas.size(); i++)
+        {
+            final Rectangular b = areas.get(i).getBounds();
+            y1[i] = b.getY1();
+            y2[i] = b.getY2();
+        }
+        return new IntervalIndex(y1, y2);
+    }
 
     //=====================================================================================================
     
-    private void addSameLineConnections(List<Area> areas)
+    private void addSameLineConnections(List<Area> areas, IntervalIndex lineIndex)
     {
         if (!areas.isEmpty())
         {
             //total page width (use the page of the first area, all areas should share the same page anyway)
             final int tw = areas.get(0).getPage().getWidth();
-            //scan the line relationships
+            //scan the line relationships (only the vertically overlapping areas may be on the same line)
             for (Area a1 : areas)
             {
                 final Rectangular b1 = a1.getBounds();
-                for (Area a2 : areas)
+                for (int i2 : lineIndex.findOverlapping(b1.getY1(), b1.getY2()))
                 {
+                    final Area a2 = areas.get(i2);
                     final Rectangular b2 = a2.getBounds();
                     if (a1 != a2 && !b1.intersects(b2))
                     {
@@ -126,17 +149,30 @@ public class RelationAnalyzerSymmetric extends RelationAnalyzer
         {
             //total page width (use the page of the first area, all areas should share the same page anyway)
             final int th = areas.get(0).getPage().getWidth(); //TODO should we use height?
-            //scan the line relationships
+            //scan the line relationships (only the areas that overlap horizontally in the topology may be checked)
             final Set<Entry<Area,Rectangular>> entries = getTopology().getPositionMap().entrySet();
-            for (Entry<Area,Rectangular> e1 : entries)
+            final List<Area> gpAreas = new ArrayList<>(entries.size());
+            final List<Rectangular> gpRects = new ArrayList<>(entries.size());
+            final int[] x1 = new int[entries.size()];
+            final int[] x2 = new int[entries.size()];
+            for (Entry<Area,Rectangular> e : entries)
             {
-                for (Entry<Area,Rectangular> e2 : entries)
+                x1[gpAreas.size()] = e.getValue().getX1();
+                x2[gpAreas.size()] = e.getValue().getX2();
+                gpAreas.add(e.getKey());
+                gpRects.add(e.getValue());
+            }
+            final IntervalIndex columnIndex = new IntervalIndex(x1, x2);
+            for (int i1 = 0; i1 < gpAreas.size(); i1++)
+            {
+                final Area a1 = gpAreas.get(i1);
+                final Rectangular gp1 = gpRects.get(i1);
+                for (int i2 : columnIndex.findOverlapping(gp1.getX1(), gp1.getX2()))
                 {
-                    final Area a1 = e1.getKey();
-                    final Area a2 = e2.getKey();
+                    final Area a2 = gpAreas.get(i2);
                     if (a1 != a2 && !a1.getBounds().intersects(a2.getBounds()))
                     {
-                        checkBelowUnder(a1, e1.getValue(), a2, e2.getValue(), th);
+                        checkBelowUnder(a1, gp1, a2, gpRects.get(i2), th);
                     }
                 }
             }
@@ -169,37 +205,94 @@ public class RelationAnalyzerSymmetric extends RelationAnalyzer
 
     //=====================================================================================================
     
-    private void addLineBelowRelations(List<Area> areas)
+    private void addLineBelowRelations(List<Area> areas, IntervalIndex lineIndex)
     {
         if (!areas.isEmpty())
         {
             final int tw = areas.get(0).getPage().getWidth();
             final int th = areas.get(0).getPage().getHeight();
+            //area indices sorted by their top edge
+            final Integer[] byTop = new Integer[areas.size()];
+            final int[] tops = new int[areas.size()];
+            float maxEm = 0;
+            for (int i = 0; i < areas.size(); i++)
+            {
+                byTop[i] = i;
+                maxEm = Math.max(maxEm, areas.get(i).getFontSize());
+            }
+            Arrays.sort(byTop, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer o1, Integer o2)
+                {
+                    return Integer.compare(areas.get(o1).getBounds().getY1(), areas.get(o2).getBounds().getY1());
+                }
+            });
+            for (int i = 0; i < byTop.length; i++)
+                tops[i] = areas.get(byTop[i]).getBounds().getY1();
+            
             for (Area a : areas)
-                findLineBelow(a, areas, tw, th);
+                findLineBelow(a, areas, byTop, tops, maxEm, lineIndex, tw, th);
         }
     }
  
-    private void findLineBelow(Area a, List<Area> areas, int tw, int th)
+    private void findLineBelow(Area a, List<Area> areas, Integer[] byTop, int[] tops, float maxEm, IntervalIndex lineIndex, int tw, int th)
     {
         //find the closest area
         float maxW = 0;
-        Area closest = null;
-        for (Area cand : areas)
+        int closestIndex = -1;
+        if (tw > 0 && th > 0)
         {
-            float w = computeWeight(cand, a, tw, th);
-            if (w > maxW)
+            //the candidates are scanned from the top while their weight may still reach the current maximum:
+            //the weight cannot exceed the vertical weight 1 - distY / th unless both the weights are negative
+            final int aY2 = a.getBounds().getY2();
+            final int first = findFirstTop(tops, (int) Math.floor(aY2 - 0.5f * maxEm));
+            final int negative = findFirstNegative(tops, aY2, th);
+            for (int i = first; i < negative; i++)
             {
-                closest = cand;
-                maxW = w;
+                final float distY = tops[i] - aY2;
+                if (1.0f - distY / th < maxW)
+                    break;
+                final int ci = byTop[i];
+                final float w = computeWeight(areas.get(ci), a, tw, th);
+                if (w > maxW || (w == maxW && w > 0 && ci < closestIndex))
+                {
+                    closestIndex = ci;
+                    maxW = w;
+                }
+            }
+            for (int i = Math.max(first, negative); i < byTop.length; i++)
+            {
+                final int ci = byTop[i];
+                final float w = computeWeight(areas.get(ci), a, tw, th);
+                if (w > maxW || (w == maxW && w > 0 && ci < closestIndex))
+                {
+                    closestIndex = ci;
+                    maxW = w;
+                }
             }
         }
+        else
+        {
+            for (int ci = 0; ci < areas.size(); ci++)
+            {
+                final float w = computeWeight(areas.get(ci), a, tw, th);
+                if (w > maxW)
+                {
+                    closestIndex = ci;
+                    maxW = w;
+                }
+            }
+        }
+        final Area closest = (closestIndex == -1) ? null : areas.get(closestIndex);
         //find all on the same line
         if (closest != null)
         {
             Set<Area> used = new HashSet<>();
-            for (Area cand : areas)
+            final Rectangular cb = closest.getBounds();
+            for (int ci : lineIndex.findOverlapping(cb.getY1(), cb.getY2()))
             {
+                final Area cand = areas.get(ci);
                 if ((cand == closest || AreaUtils.isOnSameLine(cand, closest)) && !used.contains(cand))
                 {
                     float w = computeWeight(cand, a, tw, th);
@@ -222,6 +315,44 @@ public class RelationAnalyzerSymmetric extends RelationAnalyzer
         }
     }
     
+    /**
+     * Finds the first position in the sorted array of top edges whose value is at least the given value.
+     */
+    private int findFirstTop(int[] tops, int minTop)
+    {
+        int lo = 0;
+        int hi = tops.length;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (tops[mid] < minTop)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    /**
+     * Finds the first position in the sorted array of top edges where the vertical weight
+     * {@code 1 - distY / th} gets negative.
+     */
+    private int findFirstNegative(int[] tops, int aY2, int th)
+    {
+        int lo = 0;
+        int hi = tops.length;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final float distY = tops[mid] - aY2;
+            if (1.0f - distY / th >= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
     //=====================================================================================================
     
     private void addUnderHeadingRelations(List<Area> areas)
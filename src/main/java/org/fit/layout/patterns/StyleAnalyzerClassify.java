@@ -17,6 +17,7 @@ import java.util.Set;
 import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
 import org.fit.layout.patterns.model.AreaStyle;
+import org.fit.layout.patterns.model.AreaStyleCache;
 
 import weka.classifiers.Classifier;
 import weka.classifiers.lazy.IBk;
@@ -31,6 +32,11 @@ import weka.core.Instances;
  */
 public class StyleAnalyzerClassify implements StyleAnalyzer
 {
+    /** Use the native KD-tree based classifier instead of Weka's IBk */
+    private static final boolean USE_STYLE_CLASSIFIER = true;
+    /** Number of the nearest neighbors used by the native classifier (IBk default) */
+    private static final int NEIGHBOR_COUNT = 1;
+    
     /** The tags to be assigned */
     private List<Tag> tags;
     
@@ -43,17 +49,25 @@ public class StyleAnalyzerClassify implements StyleAnalyzer
     /** The used classifier */
     private Classifier classifier;
     
+    /** The native classifier that is updated with each training example */
+    private StyleClassifier styleClassifier;
+    
     
     public StyleAnalyzerClassify(List<Tag> tags)
     {
         this.tags = tags;
         initTrainingData();
+        if (USE_STYLE_CLASSIFIER)
+            styleClassifier = new StyleClassifier(tags.size() + 1, NEIGHBOR_COUNT); //including the "none" class as in the training set
     }
     
     @Override
     public Set<Tag> inferTags(Area a)
     {
-        Instance inst = createStyleInstance(new AreaStyle(a), null);
+        if (styleClassifier != null)
+            return createTagSet(styleClassifier.classify(AreaStyleCache.getStyle(a)));
+        
+        Instance inst = createStyleInstance(AreaStyleCache.getStyle(a), null);
         inst.setDataset(trainset);
         Tag best = null;
         double bestScore = 0;
@@ -77,8 +91,39 @@ public class StyleAnalyzerClassify implements StyleAnalyzer
         return ret;
     }
     
+    /**
+     * Infers the tags for a list of areas.
+     * @param areas the areas to be classified
+     * @return the list of inferred tag sets corresponding to the areas
+     */
+    public List<Set<Tag>> classify(List<Area> areas)
+    {
+        List<Set<Tag>> ret = new ArrayList<>(areas.size());
+        if (styleClassifier != null)
+        {
+            for (Area a : areas)
+                ret.add(createTagSet(styleClassifier.classify(AreaStyleCache.getStyle(a))));
+        }
+        else
+        {
+            for (Area a : areas)
+                ret.add(inferTags(a));
+        }
+        return ret;
+    }
+    
     public Map<Tag, Double> classifyNodeStyle(AreaStyle style)
     {
+        if (styleClassifier != null)
+        {
+            final double[] res = styleClassifier.distributionForStyle(style);
+            Map<Tag, Double> ret = new HashMap<Tag, Double>(tags.size());
+            int i = 0;
+            for (Tag tag : tags)
+                ret.put(tag, res[i++]);
+            return ret;
+        }
+        
         Instance inst = createStyleInstance(style, null);
         inst.setDataset(trainset);
         Map<Tag, Double> ret = new HashMap<Tag, Double>(tags.size());
@@ -94,15 +139,34 @@ public class StyleAnalyzerClassify implements StyleAnalyzer
         return ret;
     }
 
+    /**
+     * Adds a training example.
+     * @param a the example area
+     * @param t the tag of the area
+     * @throws IllegalArgumentException when the tag is not one of the tags to be assigned
+     */
     public void addTrainingExample(Area a, Tag t)
     {
-        AreaStyle style = new AreaStyle(a);
+        final int index = tags.indexOf(t);
+        if (index == -1)
+            throw new IllegalArgumentException("Unknown tag " + t);
+        AreaStyle style = AreaStyleCache.getStyle(a);
         Instance inst = createStyleInstance(style, t);
         trainset.add(inst);
+        if (styleClassifier != null)
+            styleClassifier.add(style, index);
     }
 
     //============================================================================
     
+    private Set<Tag> createTagSet(int tagIndex)
+    {
+        Set<Tag> ret = new HashSet<Tag>(1);
+        if (tagIndex != -1 && tagIndex < tags.size()) //not the "none" class
+            ret.add(tags.get(tagIndex));
+        return ret;
+    }
+    
     private Instance createStyleInstance(AreaStyle style, Tag tag)
     {
         Instance inst = new DenseInstance(13);
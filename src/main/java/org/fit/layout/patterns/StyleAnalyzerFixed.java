@@ -12,6 +12,7 @@ import java.util.Set;
 import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
 import org.fit.layout.patterns.model.AreaStyle;
+import org.fit.layout.patterns.model.AreaStyleCache;
 
 /**
  * A style analyzer that assigns the tags by comparing the area
@@ -21,7 +22,11 @@ import org.fit.layout.patterns.model.AreaStyle;
  */
 public class StyleAnalyzerFixed implements StyleAnalyzer
 {
+    /** Use the compiled style mapping for inferring the tags instead of comparing all the styles */
+    private static final boolean USE_COMPILED_STYLE_MAP = true;
+    
     private Map<Tag, AreaStyle> styles;
+    private CompiledStyleMap compiled;
     
     
     /**
@@ -29,8 +34,21 @@ public class StyleAnalyzerFixed implements StyleAnalyzer
      * @param styles the tag to style mapping.
      */
     public StyleAnalyzerFixed(Map<Tag, AreaStyle> styles)
+    {
+        this(styles, null);
+    }
+    
+    /**
+     * Creates a new style analyzer that shares the compiled style mapping with other analyzers.
+     * @param styles the tag to style mapping.
+     * @param cache the cache of the compiled mappings or {@code null} for compiling the mapping
+     * for this analyzer only
+     */
+    public StyleAnalyzerFixed(Map<Tag, AreaStyle> styles, CompiledStyleMapCache cache)
     {
         this.styles = styles;
+        if (USE_COMPILED_STYLE_MAP)
+            compiled = (cache != null) ? cache.compile(styles) : new CompiledStyleMap(styles);
     }
     
     public AreaStyle getStyleForTag(Tag tag)
@@ -41,8 +59,11 @@ public class StyleAnalyzerFixed implements StyleAnalyzer
     @Override
     public Set<Tag> inferTags(Area a)
     {
+        AreaStyle astyle = AreaStyleCache.getStyle(a);
+        if (compiled != null)
+            return compiled.inferTags(astyle);
+        
         Set<Tag> ret = new HashSet<>();
-        AreaStyle astyle = new AreaStyle(a);
         for (Map.Entry<Tag, AreaStyle> entry : styles.entrySet())
         {
             if (isComparableStyle(entry.getValue(), (astyle)))
@@ -57,7 +78,7 @@ public class StyleAnalyzerFixed implements StyleAnalyzer
      * @param s2
      * @return
      */
-    private boolean isComparableStyle(AreaStyle s1, AreaStyle s2)
+    public static boolean isComparableStyle(AreaStyle s1, AreaStyle s2)
     {
         /*if (s1.equals(s2))
             return true; //basically "same" text style
@@ -80,12 +101,12 @@ public class StyleAnalyzerFixed implements StyleAnalyzer
                 && valueMatches(s1.getBgColor(), s2.getBgColor());
     }
     
-    private boolean valueMatches(float val1, float val2)
+    private static boolean valueMatches(float val1, float val2)
     {
         return val1 == -1.0f || val2 == -1.0f || Math.abs(val2 - val1) < 0.001f;
     }
     
-    private boolean valueMatches(Object o1, Object o2)
+    private static boolean valueMatches(Object o1, Object o2)
     {
         return o1 == null || o2 == null || o1.equals(o2);
     }
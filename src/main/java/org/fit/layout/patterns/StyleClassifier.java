@@ -0,0 +1,373 @@
+/**
+ * StyleClassifier.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import org.fit.layout.patterns.model.AreaStyle;
+
+/**
+ * A k-nearest neighbor classifier of the area styles. The styles are represented by 12 numeric features
+ * (font size, weight and style, the text and background color components, background separation, width
+ * and height). As in Weka's {@code IBk} with the default settings, the features are normalized
+ * to the range of the values and compared using the Euclidean distance; the neighbors at the same
+ * distance as the k-th one are included as well. The value ranges are extended with both the training
+ * and the classified values. The class distribution is computed as in {@code IBk} too: each class starts
+ * with the count of {@code 1/N} (where {@code N} is the number of the training examples) before
+ * the neighbors are counted. The classes that are never used as training labels (such as the extra
+ * {@code none} class value used with {@code IBk}) may be included in the class count in order to obtain
+ * the same distribution.
+ *
+ * <p>The training styles are kept in a KD-tree that is extended with each new training example;
+ * no rebuild is necessary. The normalization ranges only change the weights of the individual
+ * dimensions, so the tree remains valid when they change. The class labels are represented
+ * by their indices.
+ *
+ * <p>The classifier is not thread-safe.
+ */
+public class StyleClassifier
+{
+    /** Number of the style features */
+    public static final int DIM = 12;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int k;
+    private int classCount;
+
+    //the tree nodes: feature vectors (DIM values per node), labels and children
+    private double[] points;
+    private int[] labels;
+    private int[] left;
+    private int[] right;
+    private int size = 0;
+    //ranges of the training values
+    private double[] min;
+    private double[] max;
+
+    //query state
+    private double[] weights;
+    private double[] heapDist; //max-heap of the k best distances
+    private int heapSize;
+    private double[] counts;
+    private int[] stackNode;
+    private int[] stackDepth;
+    private double[] stackDist;
+
+
+    /**
+     * Creates a classifier.
+     * @param classCount the number of classes including the ones not used in the training examples
+     * @param k the number of neighbors used
+     */
+    public StyleClassifier(int classCount, int k)
+    {
+        this.classCount = classCount;
+        this.k = k;
+        points = new double[INITIAL_CAPACITY * DIM];
+        labels = new int[INITIAL_CAPACITY];
+        left = new int[INITIAL_CAPACITY];
+        right = new int[INITIAL_CAPACITY];
+        min = new double[DIM];
+        max = new double[DIM];
+        weights = new double[DIM];
+        heapDist = new double[k];
+        counts = new double[classCount];
+        stackNode = new int[INITIAL_CAPACITY];
+        stackDepth = new int[INITIAL_CAPACITY];
+        stackDist = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Obtains the number of training examples.
+     * @return the number of examples
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a training example.
+     * @param style the example style
+     * @param label the class index
+     * @throws IllegalArgumentException when the class index is out of the range of the classes
+     */
+    public void add(AreaStyle style, int label)
+    {
+        add(getFeatures(style), label);
+    }
+
+    /**
+     * Adds a training example.
+     * @param features the feature vector of the example
+     * @param label the class index
+     * @throws IllegalArgumentException when the class index is out of the range of the classes
+     */
+    public void add(double[] features, int label)
+    {
+        if (label < 0 || label >= classCount)
+            throw new IllegalArgumentException("Invalid class index " + label + " for " + classCount + " classes");
+        if (size == labels.length)
+        {
+            final int capacity = size * 2;
+            points = Arrays.copyOf(points, capacity * DIM);
+            labels = Arrays.copyOf(labels, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        final int node = size++;
+        System.arraycopy(features, 0, points, node * DIM, DIM);
+        labels[node] = label;
+        left[node] = -1;
+        right[node] = -1;
+        if (node == 0)
+        {
+            System.arraycopy(features, 0, min, 0, DIM);
+            System.arraycopy(features, 0, max, 0, DIM);
+        }
+        else
+            updateRanges(features);
+        //find the parent; the split dimension is given by the depth
+        if (node > 0)
+        {
+            int cur = 0;
+            int depth = 0;
+            while (true)
+            {
+                final int d = depth % DIM;
+                if (features[d] < points[cur * DIM + d])
+                {
+                    if (left[cur] == -1) { left[cur] = node; break; }
+                    cur = left[cur];
+                }
+                else
+                {
+                    if (right[cur] == -1) { right[cur] = node; break; }
+                    cur = right[cur];
+                }
+                depth++;
+            }
+        }
+    }
+
+    /**
+     * Computes the class distribution for a style: the ratios of the individual classes among
+     * the nearest neighbors including the {@code 1/N} prior of each class.
+     * @param style the style to be classified
+     * @return the class distribution indexed by the class indices (all zeros when there are no
+     * training examples)
+     */
+    public double[] distributionForStyle(AreaStyle style)
+    {
+        return distributionForFeatures(getFeatures(style));
+    }
+
+    /**
+     * Computes the class distribution for a feature vector.
+     * @param features the feature vector
+     * @return the class distribution indexed by the class indices (all zeros when there are no
+     * training examples)
+     */
+    public double[] distributionForFeatures(double[] features)
+    {
+        final double[] ret = new double[classCount];
+        if (size > 0)
+        {
+            updateRanges(features);
+            updateWeights();
+            //the k-th nearest distance
+            heapSize = 0;
+            search(features, false, 0.0);
+            final double limit = heapDist[0];
+            //count the classes of all the neighbors within the distance
+            Arrays.fill(counts, 1.0 / size);
+            search(features, true, limit);
+            double total = 0;
+            for (int i = 0; i < classCount; i++)
+                total += counts[i];
+            for (int i = 0; i < classCount; i++)
+                ret[i] = counts[i] / total;
+        }
+        return ret;
+    }
+
+    /**
+     * Classifies a style.
+     * @param style the style to be classified
+     * @return the index of the most frequent class among the nearest neighbors (the lowest index
+     * for equal frequencies) or -1 when there are no training examples
+     */
+    public int classify(AreaStyle style)
+    {
+        final double[] dist = distributionForStyle(style);
+        int best = -1;
+        double bestScore = 0;
+        for (int i = 0; i < dist.length; i++)
+        {
+            if (dist[i] > bestScore)
+            {
+                best = i;
+                bestScore = dist[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates the feature vector of a style.
+     * @param style the style
+     * @return the feature vector
+     */
+    public static double[] getFeatures(AreaStyle style)
+    {
+        final Color color = style.getColor();
+        final Color bgColor = style.getBgColor();
+        final double[] ret = new double[DIM];
+        ret[0] = style.getFontSize();
+        ret[1] = style.getWeight();
+        ret[2] = style.getStyle();
+        ret[3] = color.getRed() / 255.0;
+        ret[4] = color.getGreen() / 255.0;
+        ret[5] = color.getBlue() / 255.0;
+        ret[6] = bgColor.getRed() / 255.0;
+        ret[7] = bgColor.getGreen() / 255.0;
+        ret[8] = bgColor.getBlue() / 255.0;
+        ret[9] = style.isBackgroundSeparated() ? 1.0 : 0.0;
+        ret[10] = style.getWidth();
+        ret[11] = style.getHeight();
+        return ret;
+    }
+
+    //=========================================================================
+
+    /**
+     * Extends the value ranges with the given feature vector.
+     */
+    private void updateRanges(double[] features)
+    {
+        for (int d = 0; d < DIM; d++)
+        {
+            if (features[d] < min[d]) min[d] = features[d];
+            if (features[d] > max[d]) max[d] = features[d];
+        }
+    }
+
+    /**
+     * Computes the dimension weights corresponding to the normalization of the values to the training ranges.
+     */
+    private void updateWeights()
+    {
+        for (int d = 0; d < DIM; d++)
+        {
+            final double range = max[d] - min[d];
+            weights[d] = (range > 0) ? 1.0 / (range * range) : 0.0;
+        }
+    }
+
+    private double distance(double[] features, int node)
+    {
+        final int ofs = node * DIM;
+        double ret = 0;
+        for (int d = 0; d < DIM; d++)
+        {
+            final double diff = features[d] - points[ofs + d];
+            ret += weights[d] * diff * diff;
+        }
+        return ret;
+    }
+
+    /**
+     * Traverses the tree and either finds the k nearest distances
+     * or counts the classes of all the nodes whose distance does not exceed the limit.
+     * The subtrees that are farther than the current bound are skipped.
+     */
+    private void search(double[] features, boolean collect, double limit)
+    {
+        int sp = 0;
+        pushNode(sp++, 0, 0, 0.0);
+        while (sp > 0)
+        {
+            sp--;
+            final int node = stackNode[sp];
+            final int depth = stackDepth[sp];
+            final double bound = collect ? limit : ((heapSize < k) ? Double.POSITIVE_INFINITY : heapDist[0]);
+            if (stackDist[sp] > bound)
+                continue; //the subtree is too far
+            final double dist = distance(features, node);
+            if (collect)
+            {
+                if (dist <= limit)
+                    counts[labels[node]] += 1.0;
+            }
+            else
+                offer(dist);
+            final int d = depth % DIM;
+            final double diff = features[d] - points[node * DIM + d];
+            final int near = (diff < 0) ? left[node] : right[node];
+            final int far = (diff < 0) ? right[node] : left[node];
+            //the near subtree is visited first
+            if (far != -1)
+                pushNode(sp++, far, depth + 1, weights[d] * diff * diff);
+            if (near != -1)
+                pushNode(sp++, near, depth + 1, 0.0);
+        }
+    }
+
+    private void pushNode(int sp, int node, int depth, double dist)
+    {
+        if (sp == stackNode.length)
+        {
+            stackNode = Arrays.copyOf(stackNode, sp * 2);
+            stackDepth = Arrays.copyOf(stackDepth, sp * 2);
+            stackDist = Arrays.copyOf(stackDist, sp * 2);
+        }
+        stackNode[sp] = node;
+        stackDepth[sp] = depth;
+        stackDist[sp] = dist;
+    }
+
+    /**
+     * Adds a distance to the max-heap of the k best distances.
+     */
+    private void offer(double dist)
+    {
+        if (heapSize < k)
+        {
+            //sift up
+            int i = heapSize++;
+            while (i > 0)
+            {
+                final int parent = (i - 1) / 2;
+                if (heapDist[parent] >= dist)
+                    break;
+                heapDist[i] = heapDist[parent];
+                i = parent;
+            }
+            heapDist[i] = dist;
+        }
+        else if (dist < heapDist[0])
+        {
+            //replace the root and sift down
+            int i = 0;
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= heapSize)
+                    break;
+                if (child + 1 < heapSize && heapDist[child + 1] > heapDist[child])
+                    child++;
+                if (heapDist[child] <= dist)
+                    break;
+                heapDist[i] = heapDist[child];
+                i = child;
+            }
+            heapDist[i] = dist;
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
 import org.fit.layout.patterns.AttributeGroupMatcher.Attribute;
 import org.fit.layout.patterns.model.AreaStyle;
+import org.fit.layout.patterns.model.AreaStyleCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +30,9 @@ import org.slf4j.LoggerFactory;
 public class StyleGenerator
 {
     private static Logger log = LoggerFactory.getLogger(StyleGenerator.class);
+    
+    /** Create the wildcard styles using the generalization lattice instead of generalizing all the style pairs */
+    private static final boolean USE_STYLE_LATTICE = true;
 
     private List<Attribute> attrs;
     private List<Area> areas;
@@ -82,24 +86,12 @@ public class StyleGenerator
     public List<Map<Tag, AreaStyle>> generateStyleMaps(float minFrequency)
     {
         //lists of used styles for the individual tags
+        AreaStyle styles[][] = createStyleVariants(minFrequency);
+        if (styles == null)
+            return new ArrayList<>();
         int totalStyles = 1;
-        AreaStyle styles[][] = new AreaStyle[attrs.size()][];
         for (int i = 0; i < attrs.size(); i++)
-        {
-            final Attribute attr = attrs.get(i);
-            
-            List<AreaStyle> variants = new ArrayList<AreaStyle>(styleStats.get(i).getFrequentStyles(minFrequency));
-            if (getMaxWildcards() > 0)
-                variants.addAll(createStyleCombinations(variants, getMaxWildcards()));
-            if (variants.isEmpty())
-            {
-                log.error("No styles found for {}", attr.getTag());
-                return new ArrayList<>();
-            }
-            log.debug("Trying for {}: {}", attr.getTag(), variants);
-            styles[i] = variants.toArray(new AreaStyle[0]);
             totalStyles = totalStyles * styles[i].length;
-        }
         //generate style combinations
         List<Map<Tag, AreaStyle>> styleMaps = new ArrayList<>(totalStyles);
         int indices[] = new int[attrs.size()];
@@ -127,6 +119,106 @@ public class StyleGenerator
         return styleMaps;
     }
     
+    /**
+     * Creates an enumerator of the same style mappings as {@link #generateStyleMaps(float)} that creates
+     * the mappings one by one in the descending order of their support.
+     * @param minFrequency the minimal frequency of tags required to consider the style for that tag
+     * @return The style map enumerator.
+     */
+    public StyleMapEnumerator enumerateStyleMaps(float minFrequency)
+    {
+        final List<Tag> tags = new ArrayList<>(attrs.size());
+        for (Attribute attr : attrs)
+            tags.add(attr.getTag());
+        AreaStyle styles[][] = createStyleVariants(minFrequency);
+        if (styles == null)
+            return new StyleMapEnumerator(tags, new AreaStyle[attrs.size()][0], new float[attrs.size()][0]);
+        float support[][] = new float[attrs.size()][];
+        for (int i = 0; i < attrs.size(); i++)
+        {
+            support[i] = new float[styles[i].length];
+            for (int j = 0; j < styles[i].length; j++)
+                support[i][j] = getStyleSupport(i, styles[i][j]);
+        }
+        return new StyleMapEnumerator(tags, styles, support);
+    }
+    
+    /**
+     * Estimates the support of a style map in the page. For each tag, the ratio of the tagged areas
+     * whose style corresponds to the style assigned to the tag is computed. The support of the style map
+     * is the minimal ratio over all the tags.
+     * @param styleMap the style map to be evaluated
+     * @return the estimated support in the range 0..1
+     */
+    public float getStyleMapSupport(Map<Tag, AreaStyle> styleMap)
+    {
+        float ret = 1.0f;
+        for (int i = 0; i < attrs.size(); i++)
+        {
+            final AreaStyle style = styleMap.get(attrs.get(i).getTag());
+            if (style != null)
+                ret = Math.min(ret, getStyleSupport(i, style));
+        }
+        return ret;
+    }
+    
+    /**
+     * Computes the ratio of the areas tagged with the given attribute tag whose style corresponds
+     * to the given style.
+     * @param attrIndex the attribute index
+     * @param style the style to be evaluated
+     * @return the ratio in the range 0..1 (1 when there are no tagged areas)
+     */
+    private float getStyleSupport(int attrIndex, AreaStyle style)
+    {
+        final StyleCounter<AreaStyle> stats = styleStats.get(attrIndex);
+        final int total = stats.getTotalCount();
+        if (total > 0)
+        {
+            int cnt = 0;
+            for (Map.Entry<AreaStyle, Integer> entry : stats.getAll().entrySet())
+            {
+                if (StyleAnalyzerFixed.isComparableStyle(style, entry.getKey()))
+                    cnt += entry.getValue();
+            }
+            return cnt / (float) total;
+        }
+        else
+            return 1.0f;
+    }
+    
+    /**
+     * Creates the lists of the style variants for the individual attributes.
+     * @param minFrequency the minimal frequency of tags required to consider the style for that tag
+     * @return the variants for the individual attributes or {@code null} when there are no variants
+     * for some attribute
+     */
+    private AreaStyle[][] createStyleVariants(float minFrequency)
+    {
+        AreaStyle styles[][] = new AreaStyle[attrs.size()][];
+        for (int i = 0; i < attrs.size(); i++)
+        {
+            final Attribute attr = attrs.get(i);
+            
+            List<AreaStyle> variants = new ArrayList<AreaStyle>(styleStats.get(i).getFrequentStyles(minFrequency));
+            if (getMaxWildcards() > 0)
+            {
+                if (USE_STYLE_LATTICE)
+                    variants.addAll(new StyleLattice(variants, getMaxWildcards()).getGeneralizations());
+                else
+                    variants.addAll(createStyleCombinations(variants, getMaxWildcards()));
+            }
+            if (variants.isEmpty())
+            {
+                log.error("No styles found for {}", attr.getTag());
+                return null;
+            }
+            log.debug("Trying for {}: {}", attr.getTag(), variants);
+            styles[i] = variants.toArray(new AreaStyle[0]);
+        }
+        return styles;
+    }
+    
     /**
      * Takes all pairs from the given list of styles and creates a set of generalized styles 
      * corresponding to the pairs using at most {@code maxWildcards} wildcards.
@@ -173,7 +265,7 @@ public class StyleGenerator
             {
                 if (a.hasTag(attrs.get(i).getTag(), attrs.get(i).getMinSupport()))
                 {
-                    styleStats.get(i).add(new AreaStyle(a));
+                    styleStats.get(i).add(AreaStyleCache.getStyle(a));
                 }
             }
         }
@@ -0,0 +1,148 @@
+/**
+ * StyleLattice.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fit.layout.patterns.model.AreaStyle;
+
+/**
+ * The generalization lattice of the area styles. A generalization replaces some of the style features
+ * (font size, weight, style, color and background color) with wildcards. For each combination
+ * of at most {@code maxWildcards} wildcard features, the given styles are grouped by the values
+ * of the remaining features. Each group of at least two styles whose values differ in all the wildcard
+ * features yields a generalization. This covers all the generalizations of the pairs of styles obtained
+ * using {@link AreaStyle#generalizeToFit(AreaStyle)} and the generalizations of larger groups of styles
+ * as well, while each generalization is created only once.
+ *
+ * <p>No generalization needs to be dropped for a low support: each of them matches at least two
+ * of the given styles, so its support is never lower than the support of the given styles. The support
+ * of the style variants is evaluated by {@link StyleGenerator} using {@link StyleAnalyzerFixed#isComparableStyle(AreaStyle, AreaStyle)}
+ * that does not correspond to the exact grouping used here; therefore, it is not computed by the lattice.
+ */
+public class StyleLattice
+{
+    /** Number of the style features that may be replaced by wildcards */
+    public static final int FEATURE_COUNT = 5;
+
+    private static final int FONT_SIZE = 1;
+    private static final int WEIGHT = 2;
+    private static final int STYLE = 4;
+    private static final int COLOR = 8;
+    private static final int BG_COLOR = 16;
+
+    private List<AreaStyle> generalizations;
+
+
+    /**
+     * Creates the lattice of the given styles.
+     * @param styles the styles to be generalized (usually the frequent styles from the statistics)
+     * @param maxWildcards the maximal number of wildcards in a generalization
+     */
+    public StyleLattice(Collection<AreaStyle> styles, int maxWildcards)
+    {
+        generalizations = new ArrayList<>();
+        for (int size = 1; size <= Math.min(maxWildcards, FEATURE_COUNT); size++)
+        {
+            for (int mask = 1; mask < (1 << FEATURE_COUNT); mask++)
+            {
+                if (Integer.bitCount(mask) == size)
+                    addGeneralizations(mask, styles);
+            }
+        }
+    }
+
+    /**
+     * Obtains the generalizations ordered by the number of wildcards.
+     * @return the list of generalized styles
+     */
+    public List<AreaStyle> getGeneralizations()
+    {
+        return Collections.unmodifiableList(generalizations);
+    }
+
+    //=========================================================================
+
+    /**
+     * Groups the styles by the features that are not covered by the wildcard mask and creates
+     * the generalizations for the groups.
+     */
+    private void addGeneralizations(int mask, Collection<AreaStyle> styles)
+    {
+        final Map<AreaStyle, Node> groups = new LinkedHashMap<>();
+        for (AreaStyle style : styles)
+        {
+            final AreaStyle key = generalize(style, mask);
+            Node node = groups.get(key);
+            if (node == null)
+                groups.put(key, new Node(style));
+            else
+            {
+                node.members++;
+                node.varying |= getDifference(node.first, style);
+            }
+        }
+        //use the groups that generalize something
+        for (Map.Entry<AreaStyle, Node> entry : groups.entrySet())
+        {
+            final Node node = entry.getValue();
+            if (node.members > 1 && node.varying == mask)
+                generalizations.add(entry.getKey());
+        }
+    }
+
+    /**
+     * Creates a copy of the style with the features from the mask replaced by wildcards.
+     */
+    private static AreaStyle generalize(AreaStyle src, int mask)
+    {
+        AreaStyle ret = new AreaStyle(src);
+        ret.setFontSize((mask & FONT_SIZE) != 0 ? -1 : src.getFontSize());
+        ret.setWeight((mask & WEIGHT) != 0 ? -1 : src.getWeight());
+        ret.setStyle((mask & STYLE) != 0 ? -1 : src.getStyle());
+        ret.setColor((mask & COLOR) != 0 ? null : src.getColor());
+        ret.setBgColor((mask & BG_COLOR) != 0 ? null : src.getBgColor());
+        return ret;
+    }
+
+    /**
+     * Computes the mask of the features that differ in two styles.
+     */
+    private static int getDifference(AreaStyle s1, AreaStyle s2)
+    {
+        int ret = 0;
+        if (s1.getFontSize() != s2.getFontSize()) ret |= FONT_SIZE;
+        if (s1.getWeight() != s2.getWeight()) ret |= WEIGHT;
+        if (s1.getStyle() != s2.getStyle()) ret |= STYLE;
+        if (!colorEquals(s1.getColor(), s2.getColor())) ret |= COLOR;
+        if (!colorEquals(s1.getBgColor(), s2.getBgColor())) ret |= BG_COLOR;
+        return ret;
+    }
+
+    private static boolean colorEquals(Color c1, Color c2)
+    {
+        return (c1 == null) ? (c2 == null) : c1.equals(c2);
+    }
+
+    private static class Node
+    {
+        public AreaStyle first; //the first style of the group
+        public int members = 1; //number of the styles in the group
+        public int varying = 0; //the features that differ within the group
+
+        public Node(AreaStyle first)
+        {
+            this.first = first;
+        }
+    }
+
+}
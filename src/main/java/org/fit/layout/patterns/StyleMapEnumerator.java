@@ -0,0 +1,199 @@
+/**
+ * StyleMapEnumerator.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaStyle;
+
+/**
+ * An iterator over the style maps (the combinations of the style variants of the individual tags)
+ * that returns the style maps in the descending order of their support. The support of a style map
+ * is the minimal support of its styles as in {@link StyleGenerator#getStyleMapSupport(Map)}; the style
+ * maps with the same support are ordered by the product of the style supports.
+ *
+ * <p>The style maps are created one by one when requested. The variants of each tag are sorted
+ * by their support and the combinations are visited best-first using a priority queue of the candidate
+ * index vectors. Each vector is generated from a single predecessor by incrementing one of its indices,
+ * so the queue grows by at most the number of tags per returned style map.
+ */
+public class StyleMapEnumerator implements Iterator<Map<Tag, AreaStyle>>
+{
+    private Tag[] tags;
+    private AreaStyle[][] styles; //the variants of the individual tags sorted by their support
+    private float[][] support; //the supports of the sorted variants
+    private int[][] origIndex; //original indices of the sorted variants
+    private int count;
+
+    private PriorityQueue<Candidate> queue;
+    private long seq = 0;
+    private int lastIndex = -1;
+    private float lastSupport = 0.0f;
+
+
+    /**
+     * Creates the enumerator.
+     * @param tags the tags the style maps are created for
+     * @param variants the style variants for the individual tags
+     * @param variantSupport the supports of the style variants (0..1)
+     */
+    public StyleMapEnumerator(List<Tag> tags, AreaStyle[][] variants, float[][] variantSupport)
+    {
+        final int n = tags.size();
+        this.tags = tags.toArray(new Tag[0]);
+        styles = new AreaStyle[n][];
+        support = new float[n][];
+        origIndex = new int[n][];
+        count = (n > 0) ? 1 : 0;
+        for (int i = 0; i < n; i++)
+        {
+            final float[] vsup = variantSupport[i];
+            final Integer[] order = new Integer[variants[i].length];
+            for (int k = 0; k < order.length; k++)
+                order[k] = k;
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer o1, Integer o2)
+                {
+                    return Float.compare(vsup[o2], vsup[o1]);
+                }
+            });
+            styles[i] = new AreaStyle[order.length];
+            support[i] = new float[order.length];
+            origIndex[i] = new int[order.length];
+            for (int k = 0; k < order.length; k++)
+            {
+                styles[i][k] = variants[i][order[k]];
+                support[i][k] = vsup[order[k]];
+                origIndex[i][k] = order[k];
+            }
+            count = count * order.length;
+        }
+
+        queue = new PriorityQueue<>();
+        if (count > 0)
+            queue.add(createCandidate(new int[n], 0));
+    }
+
+    /**
+     * Obtains the total number of the style maps.
+     * @return the number of the style maps
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Obtains the index of the last returned style map in the list created by
+     * {@link StyleGenerator#generateStyleMaps(float)}.
+     * @return the style map index or -1 when no style map has been returned yet
+     */
+    public int getIndex()
+    {
+        return lastIndex;
+    }
+
+    /**
+     * Obtains the support of the last returned style map.
+     * @return the support (0..1)
+     */
+    public float getSupport()
+    {
+        return lastSupport;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public Map<Tag, AreaStyle> next()
+    {
+        final Candidate cand = queue.poll();
+        if (cand == null)
+            throw new NoSuchElementException();
+        //the successors: increment the indices starting with the last incremented one
+        for (int i = cand.last; i < tags.length; i++)
+        {
+            if (cand.indices[i] + 1 < styles[i].length)
+            {
+                final int[] next = Arrays.copyOf(cand.indices, cand.indices.length);
+                next[i]++;
+                queue.add(createCandidate(next, i));
+            }
+        }
+        //create the style map
+        Map<Tag, AreaStyle> ret = new HashMap<>(tags.length);
+        int index = 0;
+        int stride = 1;
+        for (int i = 0; i < tags.length; i++)
+        {
+            ret.put(tags[i], styles[i][cand.indices[i]]);
+            index += stride * origIndex[i][cand.indices[i]];
+            stride *= styles[i].length;
+        }
+        lastIndex = index;
+        lastSupport = cand.min;
+        return ret;
+    }
+
+    //=========================================================================
+
+    private Candidate createCandidate(int[] indices, int last)
+    {
+        float min = 1.0f;
+        double prod = 1.0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            final float s = support[i][indices[i]];
+            min = Math.min(min, s);
+            prod *= s;
+        }
+        return new Candidate(indices, last, min, prod, seq++);
+    }
+
+    private static class Candidate implements Comparable<Candidate>
+    {
+        public final int[] indices;
+        public final int last; //the last incremented index
+        public final float min;
+        public final double prod;
+        public final long seq;
+
+        public Candidate(int[] indices, int last, float min, double prod, long seq)
+        {
+            this.indices = indices;
+            this.last = last;
+            this.min = min;
+            this.prod = prod;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Candidate o)
+        {
+            int ret = Float.compare(o.min, min);
+            if (ret == 0)
+                ret = Double.compare(o.prod, prod);
+            if (ret == 0)
+                ret = Long.compare(seq, o.seq);
+            return ret;
+        }
+    }
+
+}
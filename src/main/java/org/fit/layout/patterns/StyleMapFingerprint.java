@@ -0,0 +1,80 @@
+/**
+ * StyleMapFingerprint.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.patterns.model.TagSet;
+
+/**
+ * A fingerprint of the tags assigned to the areas by the style resolver created for a style map.
+ * The tags are obtained for a fixed list of probe areas that is created once for the configuration
+ * scan: the page areas that are queried by the style hints and by the presentation hints and the chunks
+ * of the page that are queried by the match search. The style maps with equal fingerprints produce the same
+ * styled chunks with the same tags; therefore, they produce the same matching results and it is
+ * sufficient to evaluate only one of them.
+ *
+ * <p>The fingerprint consists of the tag ordinals assigned to the individual probe areas in the order
+ * of the probe list. The fingerprints are only comparable when they have been computed for the same probe
+ * list using resolvers that share a tag registry; they are compared exactly then.
+ */
+public class StyleMapFingerprint
+{
+    private final int[] data;
+    private final int hash;
+
+
+    /**
+     * Computes the fingerprint for the given probe areas and style resolver.
+     * @param probes the probe areas of the configuration scan
+     * @param dis the style resolver created for the style map
+     */
+    public StyleMapFingerprint(List<Area> probes, StyleResolver dis)
+    {
+        int[] buf = new int[probes.size() * 2];
+        int len = 0;
+        for (Area a : probes)
+        {
+            final TagSet tags = dis.getAreaTagSet(a);
+            final int tagCnt = tags.size();
+            if (len + 1 + tagCnt > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + 1 + tagCnt));
+            buf[len++] = tagCnt;
+            for (int ord = tags.nextOrdinal(0); ord != -1; ord = tags.nextOrdinal(ord + 1))
+                buf[len++] = ord;
+        }
+        data = Arrays.copyOf(buf, len);
+        hash = Arrays.hashCode(data);
+    }
+
+    /**
+     * Obtains the size of the fingerprint.
+     * @return the number of the stored values
+     */
+    public int size()
+    {
+        return data.length;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        StyleMapFingerprint other = (StyleMapFingerprint) obj;
+        return hash == other.hash && Arrays.equals(data, other.data);
+    }
+
+}
@@ -9,6 +9,8 @@ import java.util.Set;
 
 import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.TagRegistry;
+import org.fit.layout.patterns.model.TagSet;
 
 
 /**
@@ -21,20 +23,33 @@ public class StyleResolver implements TagResolver
     private StyleAnalyzer styles;
     private float minSupport;
     private boolean allowNewTags; //allow assigning the tags not assigned by text tagging
+    private TagRegistry registry; //registry used for the resulting tag sets
     
     
     public StyleResolver(StyleAnalyzer styles, float minSupport)
     {
-        this.styles = styles;
-        this.minSupport = minSupport;
-        this.allowNewTags = false;
+        this(styles, minSupport, false, new TagRegistry());
     }
 
     public StyleResolver(StyleAnalyzer styles, float minSupport, boolean allowNewTags)
+    {
+        this(styles, minSupport, allowNewTags, new TagRegistry());
+    }
+
+    /**
+     * Creates a resolver that uses the given tag registry for the resulting tag sets. The resolvers
+     * that share the registry produce the tag sets that may be combined efficiently.
+     * @param styles the style analyzer used for inferring the tags
+     * @param minSupport the minimal support of the tags assigned to the areas
+     * @param allowNewTags allow assigning the tags not assigned to the areas by text tagging
+     * @param registry the registry used for the tag ordinals
+     */
+    public StyleResolver(StyleAnalyzer styles, float minSupport, boolean allowNewTags, TagRegistry registry)
     {
         this.styles = styles;
         this.minSupport = minSupport;
         this.allowNewTags = allowNewTags;
+        this.registry = registry;
     }
 
     public StyleAnalyzer getStyleAnalyzer()
@@ -42,15 +57,37 @@ public class StyleResolver implements TagResolver
         return styles;
     }
 
+    /**
+     * Obtains the registry used for the tag ordinals in the resulting tag sets.
+     * @return the tag registry
+     */
+    public TagRegistry getTagRegistry()
+    {
+        return registry;
+    }
+
     @Override
     public Set<Tag> getAreaTags(Area a)
     {
-        //tags originally assigned
-        final Set<Tag> orig = a.getSupportedTags(minSupport);
+        return getAreaTagSet(a);
+    }
+
+    /**
+     * Assigns a set of tags to a given area. The resulting set allows testing the tag ordinals
+     * obtained from {@link #getTagRegistry()} directly.
+     * @param a the area
+     * @return the set of tags assigned to this area (may be empty)
+     */
+    public TagSet getAreaTagSet(Area a)
+    {
         //tags assigned by style
-        final Set<Tag> byStyle = styles.inferTags(a);
+        final TagSet byStyle = new TagSet(registry, styles.inferTags(a));
         if (!allowNewTags)
-            byStyle.retainAll(orig); //do not assign new tags by style now, only consider those already assigned
+        {
+            //do not assign new tags by style now, only consider those already assigned
+            final TagSet orig = new TagSet(registry, a.getSupportedTags(minSupport));
+            byStyle.retainAll(orig);
+        }
         //the remaining tags are the result
         return byStyle;
     }
@@ -5,77 +5,346 @@
  */
 package org.fit.layout.patterns.chunks;
 
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.fit.layout.classify.TagOccurrence;
 import org.fit.layout.model.Area;
 import org.fit.layout.model.Tag;
 
 /**
- * A cache of already created chunks depending on tags and hints.
- * 
+ * A cache of the intermediate and final results of the chunk extraction. The individual extraction
+ * stages are cached separately:
+ *
+ * <ul>
+ * <li>Source boxes extracted for a leaf area (see {@link PresentationHint#extractBoxes(Area, SourceBoxList, Set)}).
+ * The key includes only the hints that modify the box extraction.
+ * <li>Tag occurrences found in the box text of a leaf area after applying
+ * {@link PresentationHint#processOccurrences(BoxText, List)}. The key includes only the hints that modify
+ * the box extraction or the occurrences.
+ * <li>Complete lists of chunks for a tag. The key includes all the hints since the chunk areas are modified
+ * by the post-processing hints (e.g. the tags are removed by the style hints) and by the chunk sources
+ * (the layer topology is assigned) so that they cannot be shared among different hint lists.
+ * </ul>
+ *
+ * Therefore, the chunk sources that differ in the chunk post-processing hints only (e.g. the sources
+ * for different style maps) reuse the box and occurrence extraction results. Each stage keeps
+ * a limited number of entries; the least recently used entries are removed first. The entries refer
+ * to the source areas of the page; the cache is meant to be used for the chunk sources of a single page
+ * (e.g. a single configuration scan) and it may be shared among chunk sources used in parallel.
+ *
  * @author burgetr
  */
 public class ChunksCache
 {
-    private Map<TagSpec, List<Area>> chunks;
-    private int reads = 0;
-    private int hits = 0;
-    
+    /** Default maximal number of cached leaf area entries for the box and occurrence stages */
+    public static final int DEFAULT_AREA_CAPACITY = 50000;
+    /** Default maximal number of cached chunk lists */
+    public static final int DEFAULT_CHUNKS_CAPACITY = 1000;
+
+    /** The hint classes that override the box extraction */
+    private static final ClassValue<Boolean> BOX_HINT_CLASSES = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            return overrides(type, "extractBoxes", Area.class, SourceBoxList.class, Set.class);
+        }
+    };
+    /** The hint classes that override the box extraction or the occurrence processing */
+    private static final ClassValue<Boolean> OCCURRENCE_HINT_CLASSES = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            return overrides(type, "extractBoxes", Area.class, SourceBoxList.class, Set.class)
+                    || overrides(type, "processOccurrences", BoxText.class, List.class);
+        }
+    };
+
+    private Stage<BoxesEntry> boxes;
+    private Stage<List<TagOccurrence>> occurrences;
+    private Stage<List<Area>> chunks;
+
+
     public ChunksCache()
     {
-        chunks = new HashMap<>();
+        this(DEFAULT_AREA_CAPACITY, DEFAULT_CHUNKS_CAPACITY);
     }
-    
-    public void put(Tag tag, List<PresentationHint> hints, List<Area> chunkAreas)
+
+    /**
+     * Creates a new cache.
+     * @param areaCapacity the maximal number of cached entries for the box and occurrence stages
+     * @param chunksCapacity the maximal number of cached chunk lists
+     */
+    public ChunksCache(int areaCapacity, int chunksCapacity)
     {
-        final TagSpec key = new TagSpec(tag, hints);
-        chunks.put(key, chunkAreas);
+        boxes = new Stage<>(areaCapacity);
+        occurrences = new Stage<>(areaCapacity);
+        chunks = new Stage<>(chunksCapacity);
     }
-    
-    public List<Area> get(Tag tag, List<PresentationHint> hints)
+
+    //==========================================================================================
+
+    public synchronized void put(Tag tag, List<PresentationHint> hints, List<Area> chunkAreas)
     {
-        final TagSpec key = new TagSpec(tag, hints);
-        final List<Area> ret = chunks.get(key);
-        reads++;
-        if (ret != null)
-            hits++;
-        return ret;
+        chunks.put(new StageKey(null, tag, hints), chunkAreas);
+    }
+
+    public synchronized List<Area> get(Tag tag, List<PresentationHint> hints)
+    {
+        return chunks.get(new StageKey(null, tag, hints));
+    }
+
+    /**
+     * Stores the boxes extracted for a leaf area.
+     * @param area the source leaf area
+     * @param tag the tag the boxes were extracted for
+     * @param boxHints the hints that modify the box extraction (see {@link #getBoxHints(List)})
+     * @param boxText the resulting box text
+     * @param processed the areas marked as processed by the box extraction
+     */
+    public synchronized void putBoxes(Area area, Tag tag, List<PresentationHint> boxHints, BoxText boxText, Collection<Area> processed)
+    {
+        boxes.put(new StageKey(area, tag, boxHints), new BoxesEntry(boxText, new ArrayList<>(processed)));
+    }
+
+    /**
+     * Obtains the box text extracted for a leaf area.
+     * @param area the source leaf area
+     * @param tag the tag the boxes were extracted for
+     * @param boxHints the hints that modify the box extraction (see {@link #getBoxHints(List)})
+     * @param processed the set of processed areas that is updated with the areas processed during
+     * the box extraction
+     * @return the box text or {@code null} when not cached
+     */
+    public synchronized BoxText getBoxes(Area area, Tag tag, List<PresentationHint> boxHints, Set<Area> processed)
+    {
+        final BoxesEntry entry = boxes.get(new StageKey(area, tag, boxHints));
+        if (entry != null)
+        {
+            processed.addAll(entry.processed);
+            return entry.boxText;
+        }
+        else
+            return null;
+    }
+
+    /**
+     * Stores the occurrences found for a leaf area.
+     * @param area the source leaf area
+     * @param tag the tag the occurrences were found for
+     * @param occurrenceHints the hints that modify the boxes or occurrences (see {@link #getOccurrenceHints(List)})
+     * @param occurrenceList the list of occurrences
+     */
+    public synchronized void putOccurrences(Area area, Tag tag, List<PresentationHint> occurrenceHints, List<TagOccurrence> occurrenceList)
+    {
+        occurrences.put(new StageKey(area, tag, occurrenceHints), Collections.unmodifiableList(new ArrayList<>(occurrenceList)));
+    }
+
+    /**
+     * Obtains the occurrences found for a leaf area.
+     * @param area the source leaf area
+     * @param tag the tag the occurrences were found for
+     * @param occurrenceHints the hints that modify the boxes or occurrences (see {@link #getOccurrenceHints(List)})
+     * @return a new list of occurrences or {@code null} when not cached
+     */
+    public synchronized List<TagOccurrence> getOccurrences(Area area, Tag tag, List<PresentationHint> occurrenceHints)
+    {
+        final List<TagOccurrence> ret = occurrences.get(new StageKey(area, tag, occurrenceHints));
+        return (ret == null) ? null : new ArrayList<>(ret);
     }
-    
-    public int size()
+
+    //==========================================================================================
+
+    public synchronized int size()
     {
-        return chunks.size();
+        return chunks.map.size();
     }
-    
-    public int getReads()
+
+    public synchronized int getReads()
     {
-        return reads;
+        return chunks.reads;
     }
 
-    public int getHits()
+    public synchronized int getHits()
     {
-        return hits;
+        return chunks.hits;
     }
-    
-    public int getChunkCount()
+
+    public synchronized int getChunkCount()
     {
         int r = 0;
-        for (List<Area> list : chunks.values())
+        for (List<Area> list : chunks.map.values())
             r += list.size();
         return r;
     }
 
+    public synchronized int getBoxReads()
+    {
+        return boxes.reads;
+    }
+
+    public synchronized int getBoxHits()
+    {
+        return boxes.hits;
+    }
+
+    public synchronized int getOccurrenceReads()
+    {
+        return occurrences.reads;
+    }
+
+    public synchronized int getOccurrenceHits()
+    {
+        return occurrences.hits;
+    }
+
+    public synchronized int getEvictions()
+    {
+        return boxes.evictions + occurrences.evictions + chunks.evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "ChunksCache[boxes " + boxes + ", occurrences " + occurrences + ", chunks " + chunks + "]";
+    }
+
+    //==========================================================================================
+
+    /**
+     * Selects the hints that influence the box extraction stage.
+     * @param hints the list of all hints or {@code null}
+     * @return the list of hints that modify the box extraction
+     */
+    public static List<PresentationHint> getBoxHints(List<PresentationHint> hints)
+    {
+        List<PresentationHint> ret = new ArrayList<>();
+        if (hints != null)
+        {
+            for (PresentationHint hint : hints)
+            {
+                if (BOX_HINT_CLASSES.get(hint.getClass()))
+                    ret.add(hint);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Selects the hints that influence the box extraction or the occurrence processing stage.
+     * @param hints the list of all hints or {@code null}
+     * @return the list of hints that modify the box extraction or the occurrences
+     */
+    public static List<PresentationHint> getOccurrenceHints(List<PresentationHint> hints)
+    {
+        List<PresentationHint> ret = new ArrayList<>();
+        if (hints != null)
+        {
+            for (PresentationHint hint : hints)
+            {
+                if (OCCURRENCE_HINT_CLASSES.get(hint.getClass()))
+                    ret.add(hint);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether the hint class implements the given method differently from {@link DefaultHint}.
+     * The result is memoized per class by the callers.
+     */
+    private static boolean overrides(Class<?> type, String name, Class<?>... params)
+    {
+        try {
+            Method m = type.getMethod(name, params);
+            return m.getDeclaringClass() != DefaultHint.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
     //==========================================================================================
-    
-    private static class TagSpec
+
+    /**
+     * A single cached stage with a limited size.
+     */
+    private static class Stage<T>
     {
+        private Map<StageKey, T> map;
+        private int reads = 0;
+        private int hits = 0;
+        private int evictions = 0;
+
+        public Stage(final int capacity)
+        {
+            map = new LinkedHashMap<StageKey, T>(16, 0.75f, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StageKey, T> eldest)
+                {
+                    if (size() > capacity)
+                    {
+                        evictions++;
+                        return true;
+                    }
+                    else
+                        return false;
+                }
+            };
+        }
+
+        public T get(StageKey key)
+        {
+            final T ret = map.get(key);
+            reads++;
+            if (ret != null)
+                hits++;
+            return ret;
+        }
+
+        public void put(StageKey key, T value)
+        {
+            map.put(key, value);
+        }
+
+        @Override
+        public String toString()
+        {
+            return map.size() + " entries, " + reads + " reads, " + hits + " hits, " + evictions + " evictions";
+        }
+    }
+
+    private static class BoxesEntry
+    {
+        public BoxText boxText;
+        public List<Area> processed;
+
+        public BoxesEntry(BoxText boxText, List<Area> processed)
+        {
+            this.boxText = boxText;
+            this.processed = processed;
+        }
+    }
+
+    private static class StageKey
+    {
+        private Area area;
         private Tag tag;
         private List<PresentationHint> hints;
-        
-        public TagSpec(Tag tag, List<PresentationHint> hints)
+
+        public StageKey(Area area, Tag tag, List<PresentationHint> hints)
         {
+            this.area = area;
             this.tag = tag;
             this.hints = hints;
         }
@@ -85,18 +354,20 @@ public class ChunksCache
         {
             final int prime = 31;
             int result = 1;
+            result = prime * result + ((area == null) ? 0 : System.identityHashCode(area));
             result = prime * result + ((hints == null) ? 0 : hints.hashCode());
             result = prime * result + ((tag == null) ? 0 : tag.hashCode());
             return result;
         }
-        
+
         @Override
         public boolean equals(Object obj)
         {
             if (this == obj) return true;
             if (obj == null) return false;
             if (getClass() != obj.getClass()) return false;
-            TagSpec other = (TagSpec) obj;
+            StageKey other = (StageKey) obj;
+            if (area != other.area) return false;
             if (hints == null)
             {
                 if (other.hints != null) return false;
@@ -109,7 +380,7 @@ public class ChunksCache
             else if (!tag.equals(other.tag)) return false;
             return true;
         }
-        
+
     }
-    
+
 }
@@ -95,6 +95,36 @@ public class HintMultiBox extends DefaultHint
         return areas;
     }
     
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = super.hashCode();
+        result = prime * result + ((dis == null) ? 0 : dis.hashCode());
+        result = prime * result + ((tag == null) ? 0 : tag.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) return true;
+        if (!super.equals(obj)) return false;
+        if (getClass() != obj.getClass()) return false;
+        HintMultiBox other = (HintMultiBox) obj;
+        if (dis == null)
+        {
+            if (other.dis != null) return false;
+        }
+        else if (!dis.equals(other.dis)) return false;
+        if (tag == null)
+        {
+            if (other.tag != null) return false;
+        }
+        else if (!tag.equals(other.tag)) return false;
+        return true;
+    }
+
     //===================================================================================================================
     
     private List<Area> findConsistentLines(Area a, AreaTopology topology)
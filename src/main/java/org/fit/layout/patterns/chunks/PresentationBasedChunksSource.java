@@ -49,6 +49,7 @@ public class PresentationBasedChunksSource extends ChunksSource
     
     private float minTagSupport;
     private ChunksCache cache;
+    private TagOccurrenceCache occurrenceCache;
     private List<Area> areas;
     private Map<Tag, List<Area>> tagAreas;
     private Map<Tag, List<PresentationHint>> hints;
@@ -57,14 +58,29 @@ public class PresentationBasedChunksSource extends ChunksSource
      * Creates a new source.
      * @param root the root area of the area tree
      * @param minTagSupport minimal support of the tags for considering the areas for chunk extraction
-     * @param cache the cache of already extracted chunks for sharing the chunks among different sources
+     * @param cache the cache of the chunk extraction results for sharing the results among different sources
      * or {@code null} when no cache should be used.
      */
     public PresentationBasedChunksSource(Area root, float minTagSupport, ChunksCache cache)
+    {
+        this(root, minTagSupport, cache, null);
+    }
+    
+    /**
+     * Creates a new source.
+     * @param root the root area of the area tree
+     * @param minTagSupport minimal support of the tags for considering the areas for chunk extraction
+     * @param cache the cache of the chunk extraction results for sharing the results among different sources
+     * or {@code null} when no cache should be used.
+     * @param occurrenceCache the cache of the tag occurrences found in the box texts or {@code null}
+     * when the texts should be always tagged again.
+     */
+    public PresentationBasedChunksSource(Area root, float minTagSupport, ChunksCache cache, TagOccurrenceCache occurrenceCache)
     {
         super(root);
         this.minTagSupport = minTagSupport;
         this.cache = cache;
+        this.occurrenceCache = occurrenceCache;
         hints = new HashMap<>();
     }
     
@@ -122,7 +138,14 @@ public class PresentationBasedChunksSource extends ChunksSource
         List<Area> destChunks = new ArrayList<>();
         List<Area> destAll = new ArrayList<>();
         Set<Area> processed = new HashSet<>();
-        recursiveScan(getRoot(), (TextTag) t, destChunks, destAll, processed);
+        List<PresentationHint> boxHints = null;
+        List<PresentationHint> occurrenceHints = null;
+        if (cache != null)
+        {
+            boxHints = ChunksCache.getBoxHints(hints);
+            occurrenceHints = ChunksCache.getOccurrenceHints(hints);
+        }
+        recursiveScan(getRoot(), (TextTag) t, boxHints, occurrenceHints, destChunks, destAll, processed);
         //apply post-processing hints on all chunks for the given tag
         if (hints != null)
             destChunks = applyHints(destChunks, hints);
@@ -168,39 +191,62 @@ public class PresentationBasedChunksSource extends ChunksSource
     
     //==============================================================================================
     
-    private void recursiveScan(Area root, TextTag tag, List<Area> destChunks, List<Area> destAll, Set<Area> processed)
+    private void recursiveScan(Area root, TextTag tag, List<PresentationHint> boxHints, List<PresentationHint> occurrenceHints,
+            List<Area> destChunks, List<Area> destAll, Set<Area> processed)
     {
         if (root.isLeaf())
         {
             if (root.hasTag(tag, minTagSupport) && !processed.contains(root))
             {
-                createAreasFromTag(root, tag, destChunks, destAll, processed);
+                createAreasFromTag(root, tag, boxHints, occurrenceHints, destChunks, destAll, processed);
             }
         }
         else
         {
             for (Area child : root.getChildren())
-                recursiveScan(child, tag, destChunks, destAll, processed);
+                recursiveScan(child, tag, boxHints, occurrenceHints, destChunks, destAll, processed);
         }
     }
 
-    private void createAreasFromTag(Area a, TextTag t, List<Area> destChunks, List<Area> destAll, Set<Area> processed)
+    private void createAreasFromTag(Area a, TextTag t, List<PresentationHint> boxHints, List<PresentationHint> occurrenceHints,
+            List<Area> destChunks, List<Area> destAll, Set<Area> processed)
     {
         List<Area> chunks = new ArrayList<>();
         List<Area> all = new ArrayList<>();
         Tagger tg = t.getSource();
         
         //Stage 1: Extract boxes
-        SourceBoxList boxes = extractBoxes(a, t, processed);
-        BoxText boxText = new BoxText(boxes);
+        BoxText boxText = null;
+        if (cache != null)
+            boxText = cache.getBoxes(a, t, boxHints, processed);
+        if (boxText == null)
+        {
+            Set<Area> newProcessed = new HashSet<>();
+            SourceBoxList boxes = extractBoxes(a, t, newProcessed);
+            boxText = new BoxText(boxes);
+            processed.addAll(newProcessed);
+            if (cache != null)
+                cache.putBoxes(a, t, boxHints, boxText, newProcessed);
+        }
 
         //Stage 2: Find occurences
-        List<TagOccurrence> occurrences = tg.extract(boxText.getText());
-        //apply hints on the particular list of occurences
-        if (hints.containsKey(t))
+        List<TagOccurrence> occurrences = null;
+        if (cache != null)
+            occurrences = cache.getOccurrences(a, t, occurrenceHints);
+        if (occurrences == null)
         {
-            for (PresentationHint hint : hints.get(t))
-                occurrences = hint.processOccurrences(boxText, occurrences);
+            if (occurrenceCache != null)
+                occurrences = occurrenceCache.extract(tg, boxText.getText());
+            else
+                occurrences = tg.extract(boxText.getText());
+            //apply hints on the particular list of occurences
+            if (hints.containsKey(t))
+            {
+                for (PresentationHint hint : hints.get(t))
+                    occurrences = hint.processOccurrences(boxText, occurrences);
+            }
+            if (cache != null)
+                cache.putOccurrences(a, t, occurrenceHints, occurrences);
         }
         
         //Stage 3: Create chunks based on the occurences
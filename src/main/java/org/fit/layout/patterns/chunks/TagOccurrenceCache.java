@@ -0,0 +1,166 @@
+/**
+ * TagOccurrenceCache.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.chunks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fit.layout.classify.TagOccurrence;
+import org.fit.layout.classify.Tagger;
+
+/**
+ * A bounded cache of the tag occurrences found by the taggers in the source texts. The same texts
+ * are tagged repeatedly by the chunk sources created for different configurations; the cache
+ * allows to share the tagging results among the sources. When the capacity is exceeded,
+ * the least recently used entries are removed. The cache is meant to be used for a single
+ * configuration scan; it may be shared among chunk sources used in parallel.
+ */
+public class TagOccurrenceCache
+{
+    /** Default maximal number of cached texts */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private int capacity;
+    private Map<TaggerText, List<TagOccurrence>> occurrences;
+    private long hits = 0;
+    private long misses = 0;
+
+
+    /**
+     * Creates a cache with the default capacity.
+     */
+    public TagOccurrenceCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache with the given capacity.
+     * @param capacity the maximal number of cached texts
+     */
+    public TagOccurrenceCache(int capacity)
+    {
+        this.capacity = capacity;
+        occurrences = new LinkedHashMap<TaggerText, List<TagOccurrence>>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TaggerText, List<TagOccurrence>> eldest)
+            {
+                return size() > TagOccurrenceCache.this.capacity;
+            }
+        };
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Finds the tag occurrences in the given text using the given tagger. The cached result is used
+     * when available.
+     * @param tagger the tagger to be used
+     * @param text the text to be tagged
+     * @return a new (modifiable) list of the occurrences found
+     */
+    public List<TagOccurrence> extract(Tagger tagger, String text)
+    {
+        final TaggerText key = new TaggerText(tagger, text);
+        List<TagOccurrence> ret;
+        synchronized (this)
+        {
+            ret = occurrences.get(key);
+            if (ret != null)
+                hits++;
+            else
+                misses++;
+        }
+        if (ret == null)
+        {
+            //tag the text outside of the lock; in the worst case, the same text is tagged twice
+            ret = Collections.unmodifiableList(new ArrayList<>(tagger.extract(text)));
+            synchronized (this)
+            {
+                occurrences.put(key, ret);
+            }
+        }
+        return new ArrayList<>(ret);
+    }
+
+    public synchronized int size()
+    {
+        return occurrences.size();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized void clear()
+    {
+        occurrences.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "TagOccurrenceCache[" + occurrences.size() + " entries, " + hits + " hits, " + misses + " misses]";
+    }
+
+    //==========================================================================================
+
+    private static class TaggerText
+    {
+        private Tagger tagger;
+        private String text;
+
+        public TaggerText(Tagger tagger, String text)
+        {
+            this.tagger = tagger;
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((tagger == null) ? 0 : tagger.hashCode());
+            result = prime * result + ((text == null) ? 0 : text.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            TaggerText other = (TaggerText) obj;
+            if (tagger != other.tagger) return false;
+            if (text == null)
+            {
+                if (other.text != null) return false;
+            }
+            else if (!text.equals(other.text)) return false;
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,607 @@
+/**
+ * AreaConnectionStore.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.patterns.Relation;
+
+/**
+ * A compact store of area connections. The areas and relations are assigned dense integer IDs
+ * and the connections are stored in parallel primitive arrays (the first area, the second area,
+ * the relation and the weight). After all the connections are added, the store is frozen and
+ * the adjacency indices are created for the first area, the second area and the relation in
+ * a compressed form: for each key, the connection indices are stored in a continuous range
+ * of a single array. Moreover, composite indices are created for the (first area, relation)
+ * and (second area, relation) pairs where the connections of each pair are sorted by decreasing
+ * weight. The queries for a given area and relation (the most frequent ones) use these indices
+ * and they may stop as soon as the weights fall below the required minimum.
+ *
+ * <p>The connection objects are only created when some of the methods that return them are used.
+ * Then, the objects of all the connections are created at once and they are shared by all the following
+ * calls; the visitor queries do not create any objects.
+ *
+ * <p>The connections are added in a single thread; the frozen store may be shared.
+ */
+public class AreaConnectionStore
+{
+    private static final int INITIAL_CAPACITY = 1024;
+    /** The id used for unspecified areas and relations in queries */
+    private static final int ANY = -1;
+    /** The id used for unknown areas and relations in queries */
+    private static final int NONE = -2;
+
+    //area and relation ids
+    private Map<Area, Integer> areaIds;
+    private List<Area> areas;
+    private Map<Relation, Integer> relationIds;
+    private List<Relation> relations;
+
+    //connections
+    private int size;
+    private int[] a1;
+    private int[] a2;
+    private short[] rel;
+    private float[] weight;
+    private float[] maxWeights;
+
+    //adjacency indices created by freeze()
+    private boolean frozen;
+    private int[] a1Offsets;
+    private int[] a1Index;
+    private int[] a2Offsets;
+    private int[] a2Index;
+    private int[] relOffsets;
+    private int[] relIndex;
+    private int[] a1RelOffsets;
+    private int[] a1RelIndex;
+    private int[] a2RelOffsets;
+    private int[] a2RelIndex;
+
+    //connection objects created on demand
+    private volatile AreaConnection[] objects;
+
+
+    public AreaConnectionStore()
+    {
+        areaIds = new HashMap<>();
+        areas = new ArrayList<>();
+        relationIds = new HashMap<>();
+        relations = new ArrayList<>();
+        size = 0;
+        a1 = new int[INITIAL_CAPACITY];
+        a2 = new int[INITIAL_CAPACITY];
+        rel = new short[INITIAL_CAPACITY];
+        weight = new float[INITIAL_CAPACITY];
+        maxWeights = new float[8];
+        frozen = false;
+    }
+
+    /**
+     * Adds a new connection.
+     * @param area1 the first area
+     * @param area2 the second area
+     * @param r the relation
+     * @param w the connection weight
+     */
+    public void add(Area area1, Area area2, Relation r, float w)
+    {
+        if (frozen)
+            throw new IllegalStateException("Cannot add connections to a frozen store");
+        if (size == a1.length)
+        {
+            final int ncap = size * 2;
+            a1 = Arrays.copyOf(a1, ncap);
+            a2 = Arrays.copyOf(a2, ncap);
+            rel = Arrays.copyOf(rel, ncap);
+            weight = Arrays.copyOf(weight, ncap);
+        }
+        a1[size] = getOrCreateAreaId(area1);
+        a2[size] = getOrCreateAreaId(area2);
+        final int rid = getOrCreateRelationId(r);
+        rel[size] = (short) rid;
+        weight[size] = w;
+        if (maxWeights[rid] < w)
+            maxWeights[rid] = w;
+        size++;
+    }
+
+    public void add(AreaConnection con)
+    {
+        add(con.getA1(), con.getA2(), con.getRelation(), con.getWeight());
+    }
+
+    /**
+     * Creates the adjacency indices. No more connections may be added after this.
+     */
+    public void freeze()
+    {
+        if (!frozen)
+        {
+            a1Offsets = new int[areas.size() + 1];
+            a1Index = createIndex(a1, null, a1Offsets);
+            a2Offsets = new int[areas.size() + 1];
+            a2Index = createIndex(a2, null, a2Offsets);
+            relOffsets = new int[relations.size() + 1];
+            relIndex = createIndex(null, rel, relOffsets);
+            //composite indices sorted by weight
+            final int nkeys = areas.size() * relations.size();
+            final int[] keys = new int[size];
+            for (int i = 0; i < size; i++)
+                keys[i] = a1[i] * relations.size() + rel[i];
+            a1RelOffsets = new int[nkeys + 1];
+            a1RelIndex = createIndex(keys, null, a1RelOffsets);
+            sortByWeight(a1RelIndex, a1RelOffsets);
+            for (int i = 0; i < size; i++)
+                keys[i] = a2[i] * relations.size() + rel[i];
+            a2RelOffsets = new int[nkeys + 1];
+            a2RelIndex = createIndex(keys, null, a2RelOffsets);
+            sortByWeight(a2RelIndex, a2RelOffsets);
+            frozen = true;
+        }
+    }
+
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    //==============================================================================================
+
+    public Area getA1(int index)
+    {
+        return areas.get(a1[index]);
+    }
+
+    public Area getA2(int index)
+    {
+        return areas.get(a2[index]);
+    }
+
+    public Relation getRelation(int index)
+    {
+        return relations.get(rel[index]);
+    }
+
+    public float getWeight(int index)
+    {
+        return weight[index];
+    }
+
+    /**
+     * Obtains the connection object for the connection with the given index. The same object
+     * is returned for the same index.
+     * @param index the connection index
+     * @return the connection
+     */
+    public AreaConnection get(int index)
+    {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return getObjects()[index];
+    }
+
+    /**
+     * Obtains a read-only list of all the connection objects in the order of adding.
+     * @return the list of connections
+     */
+    public List<AreaConnection> asList()
+    {
+        return Collections.unmodifiableList(Arrays.asList(getObjects()));
+    }
+
+    /**
+     * Obtains the maximal weight of the connections with the given relation.
+     * @param r the relation
+     * @return the maximal weight or 0 when there are no such connections
+     */
+    public float getMaxWeight(Relation r)
+    {
+        final Integer rid = relationIds.get(r);
+        return (rid == null) ? 0.0f : maxWeights[rid];
+    }
+
+    /**
+     * Obtains the areas that are used as the first area in some connection.
+     */
+    public Set<Area> getFirstAreas()
+    {
+        freeze();
+        return collectAreas(a1Offsets);
+    }
+
+    /**
+     * Obtains the areas that are used as the second area in some connection.
+     */
+    public Set<Area> getSecondAreas()
+    {
+        freeze();
+        return collectAreas(a2Offsets);
+    }
+
+    /**
+     * Obtains the relations that occur in some connection.
+     */
+    public Set<Relation> getRelations()
+    {
+        return new LinkedHashSet<>(relations);
+    }
+
+    /**
+     * Finds the indices of the connections that correspond to the given criteria. When a relation
+     * and an area are specified, the corresponding composite index is used. Otherwise, the smallest
+     * of the corresponding adjacency ranges is scanned.
+     * @param area1 the first area or {@code null} for any
+     * @param r the relation or {@code null} for any
+     * @param area2 the second area or {@code null} for any
+     * @param minWeight the minimal weight (exclusive) or a negative value for any
+     * @return the connection indices in the order of adding the connections
+     */
+    public int[] find(Area area1, Relation r, Area area2, float minWeight)
+    {
+        freeze();
+        final int id1 = getAreaId(area1);
+        final int rid = getRelationId(r);
+        final int id2 = getAreaId(area2);
+        if (id1 == NONE || rid == NONE || id2 == NONE)
+            return new int[0];
+        
+        if (rid != ANY && (id1 != ANY || id2 != ANY))
+        {
+            //composite index sorted by weight: the matching connections form a prefix of the range
+            final int[] index = (id1 != ANY) ? a1RelIndex : a2RelIndex;
+            final int start = compositeStart(id1, rid, id2);
+            final int end = compositeEnd(id1, rid, id2);
+            int[] ret = new int[end - start];
+            int cnt = 0;
+            for (int i = start; i < end; i++)
+            {
+                final int ci = index[i];
+                if (minWeight >= 0 && weight[ci] <= minWeight)
+                    break;
+                if (id1 == ANY || id2 == ANY || a2[ci] == id2)
+                    ret[cnt++] = ci;
+            }
+            if (cnt != ret.length)
+                ret = Arrays.copyOf(ret, cnt);
+            Arrays.sort(ret); //restore the order of adding
+            return ret;
+        }
+        else
+        {
+            //choose the smallest range
+            int[] index = null;
+            int start = 0;
+            int end = size;
+            if (id1 != ANY)
+            {
+                index = a1Index; start = a1Offsets[id1]; end = a1Offsets[id1 + 1];
+            }
+            if (rid != ANY && relOffsets[rid + 1] - relOffsets[rid] < end - start)
+            {
+                index = relIndex; start = relOffsets[rid]; end = relOffsets[rid + 1];
+            }
+            if (id2 != ANY && a2Offsets[id2 + 1] - a2Offsets[id2] < end - start)
+            {
+                index = a2Index; start = a2Offsets[id2]; end = a2Offsets[id2 + 1];
+            }
+            //filter the range
+            int[] ret = new int[end - start];
+            int cnt = 0;
+            for (int i = start; i < end; i++)
+            {
+                final int ci = (index == null) ? i : index[i];
+                if ((minWeight < 0 || weight[ci] > minWeight)
+                        && (id1 == ANY || a1[ci] == id1)
+                        && (rid == ANY || rel[ci] == rid)
+                        && (id2 == ANY || a2[ci] == id2))
+                    ret[cnt++] = ci;
+            }
+            return (cnt == ret.length) ? ret : Arrays.copyOf(ret, cnt);
+        }
+    }
+
+    /**
+     * Visits the connections that correspond to the given criteria without creating any objects.
+     * When a relation and an area are specified, the connections are visited in the order of
+     * decreasing weight (the connections with the same weight in the order of adding) and the scan
+     * stops as soon as the weight falls to {@code minWeight}. Otherwise, the connections are visited
+     * in the order of adding.
+     * @param area1 the first area or {@code null} for any
+     * @param r the relation or {@code null} for any
+     * @param area2 the second area or {@code null} for any
+     * @param minWeight the minimal weight (exclusive) or a negative value for any
+     * @param visitor the visitor to be called for the individual connections
+     * @return {@code false} when the scan has been stopped by the visitor, {@code true} otherwise
+     */
+    public boolean visit(Area area1, Relation r, Area area2, float minWeight, AreaConnectionVisitor visitor)
+    {
+        freeze();
+        final int id1 = getAreaId(area1);
+        final int rid = getRelationId(r);
+        final int id2 = getAreaId(area2);
+        if (id1 == NONE || rid == NONE || id2 == NONE)
+            return true;
+        
+        if (rid != ANY && (id1 != ANY || id2 != ANY))
+        {
+            final int[] index = (id1 != ANY) ? a1RelIndex : a2RelIndex;
+            final int end = compositeEnd(id1, rid, id2);
+            for (int i = compositeStart(id1, rid, id2); i < end; i++)
+            {
+                final int ci = index[i];
+                if (minWeight >= 0 && weight[ci] <= minWeight)
+                    break;
+                if ((id1 == ANY || id2 == ANY || a2[ci] == id2)
+                        && !visitor.visit(areas.get(a1[ci]), areas.get(a2[ci]), relations.get(rid), weight[ci]))
+                    return false;
+            }
+        }
+        else
+        {
+            int[] index = null;
+            int start = 0;
+            int end = size;
+            if (id1 != ANY)
+            {
+                index = a1Index; start = a1Offsets[id1]; end = a1Offsets[id1 + 1];
+            }
+            if (id2 != ANY && a2Offsets[id2 + 1] - a2Offsets[id2] < end - start)
+            {
+                index = a2Index; start = a2Offsets[id2]; end = a2Offsets[id2 + 1];
+            }
+            if (rid != ANY && relOffsets[rid + 1] - relOffsets[rid] < end - start)
+            {
+                index = relIndex; start = relOffsets[rid]; end = relOffsets[rid + 1];
+            }
+            for (int i = start; i < end; i++)
+            {
+                final int ci = (index == null) ? i : index[i];
+                if ((minWeight < 0 || weight[ci] > minWeight)
+                        && (id1 == ANY || a1[ci] == id1)
+                        && (rid == ANY || rel[ci] == rid)
+                        && (id2 == ANY || a2[ci] == id2)
+                        && !visitor.visit(areas.get(a1[ci]), areas.get(a2[ci]), relations.get(rel[ci]), weight[ci]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtains the maximal weight of the connections of the given area with the given relation.
+     * @param area1 the first area or {@code null} for any
+     * @param r the relation
+     * @param area2 the second area or {@code null} for any; at least one of the areas must be specified
+     * @return the maximal weight or {@code Float.NEGATIVE_INFINITY} when there are no such connections
+     */
+    public float getMaxWeight(Area area1, Relation r, Area area2)
+    {
+        freeze();
+        final int id1 = getAreaId(area1);
+        final int rid = getRelationId(r);
+        final int id2 = getAreaId(area2);
+        if (rid == ANY || (id1 == ANY && id2 == ANY))
+            throw new IllegalArgumentException("The relation and an area must be specified");
+        if (id1 == NONE || rid == NONE || id2 == NONE)
+            return Float.NEGATIVE_INFINITY;
+        final int[] index = (id1 != ANY) ? a1RelIndex : a2RelIndex;
+        final int end = compositeEnd(id1, rid, id2);
+        for (int i = compositeStart(id1, rid, id2); i < end; i++)
+        {
+            final int ci = index[i];
+            if (id1 == ANY || id2 == ANY || a2[ci] == id2)
+                return weight[ci];
+        }
+        return Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Finds the connections that correspond to the given criteria.
+     * @param area1 the first area or {@code null} for any
+     * @param r the relation or {@code null} for any
+     * @param area2 the second area or {@code null} for any
+     * @param minWeight the minimal weight (exclusive) or a negative value for any
+     * @return a new list of the corresponding connections in the order of adding the connections
+     */
+    public List<AreaConnection> findConnections(Area area1, Relation r, Area area2, float minWeight)
+    {
+        final int[] found = find(area1, r, area2, minWeight);
+        List<AreaConnection> ret = new ArrayList<>(found.length);
+        for (int ci : found)
+            ret.add(get(ci));
+        return ret;
+    }
+
+    //==============================================================================================
+
+    /**
+     * Obtains the connection objects; they are created on the first call.
+     */
+    private AreaConnection[] getObjects()
+    {
+        AreaConnection[] ret = objects;
+        if (ret == null)
+        {
+            synchronized (this)
+            {
+                ret = objects;
+                if (ret == null)
+                {
+                    freeze();
+                    ret = new AreaConnection[size];
+                    for (int i = 0; i < size; i++)
+                        ret[i] = new AreaConnection(areas.get(a1[i]), areas.get(a2[i]), relations.get(rel[i]), weight[i]);
+                    objects = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    private int getAreaId(Area a)
+    {
+        if (a == null)
+            return ANY;
+        final Integer id = areaIds.get(a);
+        return (id == null) ? NONE : id;
+    }
+
+    private int getRelationId(Relation r)
+    {
+        if (r == null)
+            return ANY;
+        final Integer id = relationIds.get(r);
+        return (id == null) ? NONE : id;
+    }
+
+    /**
+     * The start of the composite index range for the given ids. The first area is preferred when specified.
+     */
+    private int compositeStart(int id1, int rid, int id2)
+    {
+        return (id1 != ANY) ? a1RelOffsets[id1 * relations.size() + rid] : a2RelOffsets[id2 * relations.size() + rid];
+    }
+
+    /**
+     * The end of the composite index range for the given ids. The first area is preferred when specified.
+     */
+    private int compositeEnd(int id1, int rid, int id2)
+    {
+        return (id1 != ANY) ? a1RelOffsets[id1 * relations.size() + rid + 1] : a2RelOffsets[id2 * relations.size() + rid + 1];
+    }
+
+    private int getOrCreateAreaId(Area a)
+    {
+        Integer id = areaIds.get(a);
+        if (id == null)
+        {
+            id = areas.size();
+            areas.add(a);
+            areaIds.put(a, id);
+        }
+        return id;
+    }
+
+    private int getOrCreateRelationId(Relation r)
+    {
+        Integer id = relationIds.get(r);
+        if (id == null)
+        {
+            id = relations.size();
+            if (id > Short.MAX_VALUE)
+                throw new IllegalStateException("Too many distinct relations");
+            relations.add(r);
+            relationIds.put(r, id);
+            if (id >= maxWeights.length)
+                maxWeights = Arrays.copyOf(maxWeights, maxWeights.length * 2);
+            maxWeights[id] = Float.NEGATIVE_INFINITY;
+        }
+        return id;
+    }
+
+    /**
+     * Creates a compressed index for the given keys (either int or short keys are used).
+     * The connection indices within a key range are sorted in ascending order.
+     */
+    private int[] createIndex(int[] ikeys, short[] skeys, int[] offsets)
+    {
+        //count the keys
+        for (int i = 0; i < size; i++)
+            offsets[((ikeys != null) ? ikeys[i] : skeys[i]) + 1]++;
+        for (int k = 1; k < offsets.length; k++)
+            offsets[k] += offsets[k - 1];
+        //fill the index
+        final int[] pos = Arrays.copyOf(offsets, offsets.length - 1);
+        final int[] ret = new int[size];
+        for (int i = 0; i < size; i++)
+            ret[pos[(ikeys != null) ? ikeys[i] : skeys[i]]++] = i;
+        return ret;
+    }
+
+    /**
+     * Sorts the connection indices within each key range by decreasing weight. The connections
+     * with the same weight remain in the ascending order (stable insertion sort, the ranges are
+     * usually short; longer ranges use a stable merge sort).
+     */
+    private void sortByWeight(int[] index, int[] offsets)
+    {
+        int[] tmp = null;
+        for (int k = 0; k + 1 < offsets.length; k++)
+        {
+            final int start = offsets[k];
+            final int end = offsets[k + 1];
+            if (end - start <= 16)
+            {
+                for (int i = start + 1; i < end; i++)
+                {
+                    final int ci = index[i];
+                    int j = i - 1;
+                    while (j >= start && weight[index[j]] < weight[ci])
+                    {
+                        index[j + 1] = index[j];
+                        j--;
+                    }
+                    index[j + 1] = ci;
+                }
+            }
+            else
+            {
+                if (tmp == null)
+                    tmp = new int[size];
+                mergeSort(index, tmp, start, end);
+            }
+        }
+    }
+
+    private void mergeSort(int[] index, int[] tmp, int start, int end)
+    {
+        if (end - start > 1)
+        {
+            final int mid = (start + end) >>> 1;
+            mergeSort(index, tmp, start, mid);
+            mergeSort(index, tmp, mid, end);
+            System.arraycopy(index, start, tmp, start, end - start);
+            int i = start, j = mid, k = start;
+            while (i < mid && j < end)
+            {
+                if (weight[tmp[j]] > weight[tmp[i]])
+                    index[k++] = tmp[j++];
+                else
+                    index[k++] = tmp[i++];
+            }
+            while (i < mid)
+                index[k++] = tmp[i++];
+            while (j < end)
+                index[k++] = tmp[j++];
+        }
+    }
+
+    private Set<Area> collectAreas(int[] offsets)
+    {
+        Set<Area> ret = new LinkedHashSet<>();
+        for (int id = 0; id < areas.size(); id++)
+        {
+            if (offsets[id + 1] > offsets[id])
+                ret.add(areas.get(id));
+        }
+        return ret;
+    }
+
+}
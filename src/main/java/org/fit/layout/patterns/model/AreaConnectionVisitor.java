@@ -0,0 +1,28 @@
+/**
+ * AreaConnectionVisitor.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.patterns.Relation;
+
+/**
+ * A visitor of area connections used for scanning the connections without creating
+ * the connection objects and the result collections.
+ */
+public interface AreaConnectionVisitor
+{
+
+    /**
+     * Visits a single connection.
+     * @param a1 the first area of the connection
+     * @param a2 the second area of the connection
+     * @param r the relation
+     * @param weight the connection weight
+     * @return {@code true} to continue the scan, {@code false} to stop it
+     */
+    public boolean visit(Area a1, Area a2, Relation r, float weight);
+
+}
@@ -0,0 +1,244 @@
+/**
+ * AreaOccupancySet.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Rectangular;
+import org.fit.layout.patterns.AreaUtils;
+
+/**
+ * A set of areas with a spatial index of the area bounds that is updated incrementally when the areas
+ * are added or removed. The index is a uniform grid of cells; each area is registered in all the cells
+ * it covers (very large areas are kept in a separate list). The overlap queries only check the areas
+ * registered in the cells covered by the queried area.
+ */
+public class AreaOccupancySet extends AbstractSet<Area>
+{
+    /** The grid cell size in pixels */
+    public static final int CELL_SIZE = 64;
+    /** Maximal number of cells an area may be registered in; larger areas are checked in every query */
+    private static final int MAX_AREA_CELLS = 256;
+
+    private Set<Area> areas;
+    private Map<Long, List<Area>> cells;
+    private List<Area> large;
+
+
+    public AreaOccupancySet()
+    {
+        areas = new HashSet<>();
+        cells = new HashMap<>();
+        large = new ArrayList<>();
+    }
+
+    public AreaOccupancySet(Collection<Area> src)
+    {
+        this();
+        addAll(src);
+    }
+
+    @Override
+    public boolean add(Area a)
+    {
+        if (areas.add(a))
+        {
+            final Rectangular b = a.getBounds();
+            if (cellCount(b) > MAX_AREA_CELLS)
+                large.add(a);
+            else
+            {
+                for (int cy = cell(b.getY1()); cy <= cell(b.getY2()); cy++)
+                {
+                    for (int cx = cell(b.getX1()); cx <= cell(b.getX2()); cx++)
+                    {
+                        List<Area> list = cells.get(key(cx, cy));
+                        if (list == null)
+                        {
+                            list = new ArrayList<>(4);
+                            cells.put(key(cx, cy), list);
+                        }
+                        list.add(a);
+                    }
+                }
+            }
+            return true;
+        }
+        else
+            return false;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        if (areas.remove(o))
+        {
+            final Area a = (Area) o;
+            final Rectangular b = a.getBounds();
+            if (cellCount(b) > MAX_AREA_CELLS)
+                large.remove(a);
+            else
+            {
+                for (int cy = cell(b.getY1()); cy <= cell(b.getY2()); cy++)
+                {
+                    for (int cx = cell(b.getX1()); cx <= cell(b.getX2()); cx++)
+                    {
+                        final List<Area> list = cells.get(key(cx, cy));
+                        if (list != null)
+                            list.remove(a);
+                    }
+                }
+            }
+            return true;
+        }
+        else
+            return false;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return areas.contains(o);
+    }
+
+    @Override
+    public void clear()
+    {
+        areas.clear();
+        cells.clear();
+        large.clear();
+    }
+
+    @Override
+    public Iterator<Area> iterator()
+    {
+        final Iterator<Area> it = areas.iterator();
+        return new Iterator<Area>()
+        {
+            private Area last;
+
+            @Override
+            public boolean hasNext()
+            {
+                return it.hasNext();
+            }
+
+            @Override
+            public Area next()
+            {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove()
+            {
+                AreaOccupancySet.this.remove(last);
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        return areas.size();
+    }
+
+    //==============================================================================================
+
+    /**
+     * Checks whether some area of the set overlaps the given area.
+     * @param a the area to check
+     * @param minPercentage the minimal percentage of the areas to be shared to say that the areas overlap
+     * (see {@link AreaUtils#areasOverlap(Area, Area, double)})
+     * @return {@code true} when the area overlaps some area of the set
+     */
+    public boolean overlaps(Area a, double minPercentage)
+    {
+        final Rectangular b = a.getBounds();
+        if (cellCount(b) > cells.size())
+        {
+            //the area covers more cells than used, scan all the areas
+            for (Area other : areas)
+            {
+                if (AreaUtils.areasOverlap(a, other, minPercentage))
+                    return true;
+            }
+            return false;
+        }
+        else
+        {
+            for (Area other : large)
+            {
+                if (AreaUtils.areasOverlap(a, other, minPercentage))
+                    return true;
+            }
+            for (int cy = cell(b.getY1()); cy <= cell(b.getY2()); cy++)
+            {
+                for (int cx = cell(b.getX1()); cx <= cell(b.getX2()); cx++)
+                {
+                    final List<Area> list = cells.get(key(cx, cy));
+                    if (list != null)
+                    {
+                        for (Area other : list)
+                        {
+                            if (AreaUtils.areasOverlap(a, other, minPercentage))
+                                return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether some area of the set overlaps any of the given areas.
+     * @param col the areas to check
+     * @param minPercentage the minimal percentage of the areas to be shared to say that the areas overlap
+     * (see {@link AreaUtils#areasOverlap(Area, Area, double)})
+     * @return {@code true} when some of the areas overlaps some area of the set
+     */
+    public boolean overlaps(Collection<Area> col, double minPercentage)
+    {
+        if (!areas.isEmpty())
+        {
+            for (Area a : col)
+            {
+                if (overlaps(a, minPercentage))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    //==============================================================================================
+
+    private static int cell(int coord)
+    {
+        return Math.floorDiv(coord, CELL_SIZE);
+    }
+
+    private static long cellCount(Rectangular b)
+    {
+        return ((long) cell(b.getX2()) - cell(b.getX1()) + 1) * ((long) cell(b.getY2()) - cell(b.getY1()) + 1);
+    }
+
+    private static Long key(int cx, int cy)
+    {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+}
@@ -54,17 +54,26 @@ public class AreaStyle
      */
     public AreaStyle(AreaStyle src)
     {
-        this.fontSize = src.fontSize;
-        this.style = src.style;
-        this.weight = src.weight;
-        this.color = new Color(src.color.getRed(), src.color.getGreen(), src.color.getGreen(), src.color.getAlpha());
-        if (src.bgColor == null)
+        final Color scolor = src.getColor();
+        final Color sbgColor = src.getBgColor();
+        this.fontSize = src.getFontSize();
+        this.style = src.getStyle();
+        this.weight = src.getWeight();
+        this.color = new Color(scolor.getRed(), scolor.getGreen(), scolor.getGreen(), scolor.getAlpha());
+        if (sbgColor == null)
             this.bgColor = null;
         else
-            this.bgColor = new Color(src.bgColor.getRed(), src.bgColor.getGreen(), src.bgColor.getGreen(), src.bgColor.getAlpha());
-        this.width = src.width;
-        this.height = src.height;
-        this.backgroundSeparated = src.backgroundSeparated;
+            this.bgColor = new Color(sbgColor.getRed(), sbgColor.getGreen(), sbgColor.getGreen(), sbgColor.getAlpha());
+        this.width = src.getWidth();
+        this.height = src.getHeight();
+        this.backgroundSeparated = src.isBackgroundSeparated();
+    }
+    
+    /**
+     * Creates an empty style. Used by the subclasses that provide the style values using the getters.
+     */
+    protected AreaStyle()
+    {
     }
     
     public float getFontSize()
@@ -150,13 +159,15 @@ public class AreaStyle
     @Override
     public int hashCode()
     {
+        final Color color = getColor();
+        final Color bgColor = getBgColor();
         final int prime = 31;
         int result = 1;
         result = prime * result + ((bgColor == null) ? 0 : bgColor.hashCode());
         result = prime * result + ((color == null) ? 0 : color.hashCode());
-        result = prime * result + Float.floatToIntBits(fontSize);
-        result = prime * result + Float.floatToIntBits(style);
-        result = prime * result + Float.floatToIntBits(weight);
+        result = prime * result + Float.floatToIntBits(getFontSize());
+        result = prime * result + Float.floatToIntBits(getStyle());
+        result = prime * result + Float.floatToIntBits(getWeight());
         return result;
     }
 
@@ -165,24 +176,26 @@ public class AreaStyle
     {
         if (this == obj) return true;
         if (obj == null) return false;
-        if (getClass() != obj.getClass()) return false;
+        if (!(obj instanceof AreaStyle)) return false; //the cached style views are equal to the plain styles
         AreaStyle other = (AreaStyle) obj;
+        final Color bgColor = getBgColor();
+        final Color color = getColor();
         if (bgColor == null)
         {
-            if (other.bgColor != null) return false;
+            if (other.getBgColor() != null) return false;
         }
-        else if (!bgColor.equals(other.bgColor)) return false;
+        else if (!bgColor.equals(other.getBgColor())) return false;
         if (color == null)
         {
-            if (other.color != null) return false;
+            if (other.getColor() != null) return false;
         }
-        else if (!color.equals(other.color)) return false;
-        if (Float.floatToIntBits(fontSize) != Float
-                .floatToIntBits(other.fontSize))
+        else if (!color.equals(other.getColor())) return false;
+        if (Float.floatToIntBits(getFontSize()) != Float
+                .floatToIntBits(other.getFontSize()))
             return false;
-        if (Float.floatToIntBits(style) != Float.floatToIntBits(other.style))
+        if (Float.floatToIntBits(getStyle()) != Float.floatToIntBits(other.getStyle()))
             return false;
-        if (Float.floatToIntBits(weight) != Float.floatToIntBits(other.weight))
+        if (Float.floatToIntBits(getWeight()) != Float.floatToIntBits(other.getWeight()))
             return false;
         return true;
     }
@@ -190,31 +203,31 @@ public class AreaStyle
     public int getEditingDistance(AreaStyle other)
     {
         int dif = 0;
-        if (fontSize != other.fontSize) dif++;
-        if (weight != other.weight) dif++;
-        if (style != other.style) dif++;
-        if (!color.equals(other.color)) dif++;
-        if (!bgColor.equals(other.bgColor)) dif++;
+        if (getFontSize() != other.getFontSize()) dif++;
+        if (getWeight() != other.getWeight()) dif++;
+        if (getStyle() != other.getStyle()) dif++;
+        if (!getColor().equals(other.getColor())) dif++;
+        if (!getBgColor().equals(other.getBgColor())) dif++;
         //if (backgroundSeparated != null || !backgroundSeparated.equals(other.backgroundSeparated)) dif++;
         return dif;
     }
 
     public void generalizeToFit(AreaStyle other)
     {
-        if (fontSize != other.fontSize) fontSize = -1; 
-        if (weight != other.weight) weight = -1;
-        if (style != other.style) style = -1;
-        if (!color.equals(other.color)) color = null;
-        if (!bgColor.equals(other.bgColor)) bgColor = null;
+        if (getFontSize() != other.getFontSize()) setFontSize(-1); 
+        if (getWeight() != other.getWeight()) setWeight(-1);
+        if (getStyle() != other.getStyle()) setStyle(-1);
+        if (!getColor().equals(other.getColor())) setColor(null);
+        if (!getBgColor().equals(other.getBgColor())) setBgColor(null);
         
     }
     
     @Override
     public String toString()
     {
-        String ret = "[fs:" + fontSize + " w:" + weight + " s:" + style;
-        ret += " c:" + formatColor(color);
-        ret += " bg:" + formatColor(bgColor);
+        String ret = "[fs:" + getFontSize() + " w:" + getWeight() + " s:" + getStyle();
+        ret += " c:" + formatColor(getColor());
+        ret += " bg:" + formatColor(getBgColor());
         ret += "]";
         return ret;
     }
@@ -0,0 +1,428 @@
+/**
+ * AreaStyleCache.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.awt.Color;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Page;
+import org.fit.layout.model.Rectangular;
+import org.fit.layout.patterns.chunks.TextChunkArea;
+
+/**
+ * A cache of the area styles of a single page. The style features of each area are computed once
+ * and stored in primitive arrays; the cache returns immutable {@link AreaStyle} views of the stored
+ * features. The page areas are indexed by their IDs. The text chunk areas are created repeatedly by the chunk
+ * sources, so they are indexed by their source area, text and bounds that determine their style; the cache
+ * then grows with the number of the distinct chunks of the page rather than with the number of the created
+ * chunk areas. Each entry keeps a weak reference to its (source) area, so that an area is only found when it
+ * is the same object as the one used for computing the style. The areas are assumed not to change their style
+ * during the analysis.
+ *
+ * <p>The features are stored in fixed-size segments that are never reallocated. A view only refers to
+ * its segment, so the views kept by the style maps do not keep the whole cache alive. The caches are kept
+ * for the pages until the pages are garbage collected. The cache may be used by multiple threads.
+ */
+public class AreaStyleCache
+{
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int SEGMENT_SIZE = 256;
+
+    private static Map<Page, AreaStyleCache> caches = new WeakHashMap<>();
+
+    //area ID to slot mapping (open addressing, -1 for free keys)
+    private int[] ids;
+    private int[] slots;
+    //text chunk key to slot mapping
+    private Map<ChunkKey, Integer> chunkSlots;
+    //the (source) areas of the individual slots
+    private List<WeakReference<Area>> areas;
+    //the style features of the areas in the individual slots
+    private Segment[] segments;
+    private int size = 0;
+    private long reads = 0;
+    private long hits = 0;
+
+
+    public AreaStyleCache()
+    {
+        ids = new int[INITIAL_CAPACITY * 2];
+        Arrays.fill(ids, -1);
+        slots = new int[INITIAL_CAPACITY * 2];
+        chunkSlots = new HashMap<>();
+        areas = new ArrayList<>(INITIAL_CAPACITY);
+        segments = new Segment[INITIAL_CAPACITY / SEGMENT_SIZE];
+    }
+
+    /**
+     * Obtains the cache for the given page.
+     * @param page the page
+     * @return the cache of the page styles
+     */
+    public static AreaStyleCache forPage(Page page)
+    {
+        synchronized (caches)
+        {
+            AreaStyleCache ret = caches.get(page);
+            if (ret == null)
+            {
+                ret = new AreaStyleCache();
+                caches.put(page, ret);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Obtains the style of an area using the cache of the area page. When the area has no page assigned,
+     * a new style is created.
+     * @param area the area
+     * @return an immutable style of the area
+     */
+    public static AreaStyle getStyle(Area area)
+    {
+        final Page page = area.getPage();
+        if (page == null)
+            return new AreaStyle(area);
+        else
+            return forPage(page).getAreaStyle(area);
+    }
+
+    /**
+     * Obtains the style of an area of the page. The style is computed when the area is used for the first time.
+     * @param area the area
+     * @return an immutable style of the area
+     */
+    public synchronized AreaStyle getAreaStyle(Area area)
+    {
+        reads++;
+        if (area instanceof TextChunkArea)
+            return getChunkStyle((TextChunkArea) area);
+        final int id = area.getId();
+        if (id < 0)
+            return new AreaStyle(area); //not a valid ID
+        final int pos = findKey(id);
+        if (ids[pos] == id)
+        {
+            final int slot = slots[pos];
+            if (getArea(slot) == area)
+            {
+                hits++;
+                return getView(slot);
+            }
+            //a different area with the same ID: use a new slot, the old views remain unchanged
+            final int newSlot = addSlot(area, area);
+            slots[pos] = newSlot;
+            return getView(newSlot);
+        }
+        //add a new slot
+        final int slot = addSlot(area, area);
+        ids[pos] = id;
+        slots[pos] = slot;
+        if (size * 2 > ids.length)
+            growKeys();
+        return getView(slot);
+    }
+
+    /**
+     * Obtains the number of cached area styles.
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    public synchronized long getReads()
+    {
+        return reads;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "AreaStyleCache[" + size + " areas, " + reads + " reads, " + hits + " hits]";
+    }
+
+    //=========================================================================
+
+    private AreaStyle getChunkStyle(TextChunkArea chunk)
+    {
+        final Area src = chunk.getSourceArea();
+        if (src == null || src.getId() < 0)
+            return new AreaStyle(chunk); //no valid source
+        final ChunkKey key = new ChunkKey(src.getId(), chunk.getText(), chunk.getBounds());
+        final Integer slot = chunkSlots.get(key);
+        if (slot != null && getArea(slot) == src)
+        {
+            hits++;
+            return getView(slot);
+        }
+        final int newSlot = addSlot(chunk, src);
+        chunkSlots.put(key, newSlot);
+        return getView(newSlot);
+    }
+
+    /**
+     * Computes the style of an area and stores it in a new slot.
+     * @param area the area to compute the style for
+     * @param owner the area whose identity is checked for the slot
+     * @return the new slot index
+     */
+    private int addSlot(Area area, Area owner)
+    {
+        final int slot = size++;
+        areas.add(new WeakReference<>(owner));
+        final int segIndex = slot / SEGMENT_SIZE;
+        if (segIndex >= segments.length)
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        if (segments[segIndex] == null)
+            segments[segIndex] = new Segment();
+        segments[segIndex].set(slot % SEGMENT_SIZE, new AreaStyle(area));
+        return slot;
+    }
+
+    private Area getArea(int slot)
+    {
+        return areas.get(slot).get();
+    }
+
+    private AreaStyle getView(int slot)
+    {
+        return segments[slot / SEGMENT_SIZE].views[slot % SEGMENT_SIZE];
+    }
+
+    private int findKey(int id)
+    {
+        final int mask = ids.length - 1;
+        int pos = (id * 0x9E3779B9) >>> 1 & mask;
+        while (ids[pos] != -1 && ids[pos] != id)
+            pos = (pos + 1) & mask;
+        return pos;
+    }
+
+    private void growKeys()
+    {
+        final int[] oldIds = ids;
+        final int[] oldSlots = slots;
+        ids = new int[oldIds.length * 2];
+        Arrays.fill(ids, -1);
+        slots = new int[oldIds.length * 2];
+        for (int i = 0; i < oldIds.length; i++)
+        {
+            if (oldIds[i] != -1)
+            {
+                final int pos = findKey(oldIds[i]);
+                ids[pos] = oldIds[i];
+                slots[pos] = oldSlots[i];
+            }
+        }
+    }
+
+    //=========================================================================
+
+    /**
+     * A fixed-size segment of the stored style features. The features of a slot are written once
+     * before its view is published.
+     */
+    private static class Segment
+    {
+        final float[] fontSize = new float[SEGMENT_SIZE];
+        final float[] style = new float[SEGMENT_SIZE];
+        final float[] weight = new float[SEGMENT_SIZE];
+        final Color[] color = new Color[SEGMENT_SIZE];
+        final Color[] bgColor = new Color[SEGMENT_SIZE];
+        final boolean[] backgroundSeparated = new boolean[SEGMENT_SIZE];
+        final float[] width = new float[SEGMENT_SIZE];
+        final float[] height = new float[SEGMENT_SIZE];
+        final StyleView[] views = new StyleView[SEGMENT_SIZE];
+
+        public void set(int i, AreaStyle src)
+        {
+            fontSize[i] = src.getFontSize();
+            style[i] = src.getStyle();
+            weight[i] = src.getWeight();
+            color[i] = src.getColor();
+            bgColor[i] = src.getBgColor();
+            backgroundSeparated[i] = src.isBackgroundSeparated();
+            width[i] = src.getWidth();
+            height[i] = src.getHeight();
+            views[i] = new StyleView(this, i);
+        }
+    }
+
+    /**
+     * The key of a text chunk area: the ID of its source area, its text and its bounds.
+     */
+    private static class ChunkKey
+    {
+        private final int sourceId;
+        private final String text;
+        private final int x1, y1, x2, y2;
+
+        public ChunkKey(int sourceId, String text, Rectangular bounds)
+        {
+            this.sourceId = sourceId;
+            this.text = text;
+            x1 = bounds.getX1();
+            y1 = bounds.getY1();
+            x2 = bounds.getX2();
+            y2 = bounds.getY2();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + sourceId;
+            result = prime * result + ((text == null) ? 0 : text.hashCode());
+            result = prime * result + x1;
+            result = prime * result + y1;
+            result = prime * result + x2;
+            result = prime * result + y2;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            ChunkKey other = (ChunkKey) obj;
+            if (sourceId != other.sourceId || x1 != other.x1 || y1 != other.y1 || x2 != other.x2 || y2 != other.y2)
+                return false;
+            if (text == null)
+                return other.text == null;
+            else
+                return text.equals(other.text);
+        }
+    }
+
+    /**
+     * An immutable view of the cached style of a single area.
+     */
+    private static class StyleView extends AreaStyle
+    {
+        private final Segment segment;
+        private final int index;
+
+        public StyleView(Segment segment, int index)
+        {
+            this.segment = segment;
+            this.index = index;
+        }
+
+        @Override
+        public float getFontSize()
+        {
+            return segment.fontSize[index];
+        }
+
+        @Override
+        public float getStyle()
+        {
+            return segment.style[index];
+        }
+
+        @Override
+        public float getWeight()
+        {
+            return segment.weight[index];
+        }
+
+        @Override
+        public Color getColor()
+        {
+            return segment.color[index];
+        }
+
+        @Override
+        public Color getBgColor()
+        {
+            return segment.bgColor[index];
+        }
+
+        @Override
+        public boolean isBackgroundSeparated()
+        {
+            return segment.backgroundSeparated[index];
+        }
+
+        @Override
+        public float getWidth()
+        {
+            return segment.width[index];
+        }
+
+        @Override
+        public float getHeight()
+        {
+            return segment.height[index];
+        }
+
+        @Override
+        public void setFontSize(float fontSize)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setStyle(float style)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setWeight(float weight)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setColor(Color color)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setBgColor(Color bgColor)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setBackgroundSeparated(boolean backgroundSeparated)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setWidth(float width)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+
+        @Override
+        public void setHeight(float height)
+        {
+            throw new UnsupportedOperationException("Cached area styles cannot be modified");
+        }
+    }
+
+}
@@ -0,0 +1,351 @@
+/**
+ * BestCandidates.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.fit.layout.model.Tag;
+
+/**
+ * A bounded collection of the best candidate configurations found during the configuration scan.
+ * 
+ * <p>The overall score depends on the global match statistics that are not known until the scan
+ * completes. Therefore, the candidates are compared using the number of matched areas and the
+ * area independent score (see {@link MatchResultScore#getAreaIndependentScore()}) only: a candidate
+ * that is better in both of these values is never worse in the final ordering. Candidates with
+ * the same score are ordered by their position in the scan. A candidate is dropped as soon as there
+ * are {@code limit} other candidates that are better.
+ * 
+ * <p>The number of the candidates that are not dropped this way is not bounded by the limit: when the
+ * candidates trade the number of matched areas for the score, none of them is better than another one.
+ * Therefore, the number of the kept candidates is capped to a multiple of the limit. When the cap is
+ * exceeded, the candidates are re-ranked by the number of better candidates and only the least
+ * covered ones are kept (see {@link #getEvicted()}). The result is exact as long as no candidates
+ * have been evicted; the users should report the evictions.
+ * 
+ * <p>The candidates found by parallel scans may be collected in separate instances (e.g. one for each
+ * worker) and merged at the end using {@link #addAll(BestCandidates)}; a candidate dropped from
+ * a part would be dropped from the merged candidates as well, so the result is the same. All the methods
+ * are synchronized so that the parts may be queried by the other workers
+ * (see {@link #getOutrankingCount(int, float, int)}).
+ */
+public class BestCandidates
+{
+    /** Minimal difference of area independent scores that is not considered to be a rounding error */
+    private static final float SCORE_EPSILON = 0.00001f;
+    /** The maximal number of the kept candidates as a multiple of the limit */
+    private static final int CAPACITY_FACTOR = 4;
+    /** The number of the candidates kept after re-ranking as a multiple of the limit */
+    private static final int RERANK_FACTOR = 2;
+    
+    private int limit;
+    private List<Entry> entries;
+    private int added;
+    private int evicted;
+    
+    /**
+     * Creates a new empty candidate list.
+     * @param limit the number of best candidates to be kept
+     */
+    public BestCandidates(int limit)
+    {
+        this.limit = limit;
+        entries = new ArrayList<>();
+        added = 0;
+        evicted = 0;
+    }
+    
+    public int getLimit()
+    {
+        return limit;
+    }
+    
+    /**
+     * Obtains the number of candidates that are currently kept.
+     * @return the number of candidates
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+    
+    /**
+     * Obtains the total number of the candidates added.
+     * @return the number of candidates
+     */
+    public synchronized int getAdded()
+    {
+        return added;
+    }
+    
+    /**
+     * Obtains the number of the candidates that have been evicted because of the capacity cap although
+     * they could still get among the best candidates. When nonzero, the best candidates are approximate.
+     * @return the number of candidates
+     */
+    public synchronized int getEvicted()
+    {
+        return evicted;
+    }
+    
+    /**
+     * Adds a new evaluated candidate configuration.
+     * @param conf the candidate configuration with the result score set
+     * @param position the position of the configuration in the scan. The positions are compared
+     * lexicographically and they are used for ordering the candidates with equal scores.
+     */
+    public synchronized void add(MatcherConfiguration conf, int[] position)
+    {
+        added++;
+        insert(new Entry(conf, position));
+    }
+    
+    /**
+     * Adds all the candidates kept by another instance (e.g. the candidates found by another worker).
+     * The counts of the added and evicted candidates are added as well.
+     * @param other the candidates to be added
+     */
+    public synchronized void addAll(BestCandidates other)
+    {
+        final List<Entry> otherEntries;
+        synchronized (other)
+        {
+            otherEntries = new ArrayList<>(other.entries);
+            added += other.added;
+            evicted += other.evicted;
+        }
+        for (Entry entry : otherEntries)
+            insert(new Entry(entry.conf, entry.position));
+    }
+    
+    /**
+     * Adds the copies of the kept candidates that use a style map with the style map replaced by an
+     * equivalent one. The equivalent style map must produce the same evaluation results and its index must
+     * be greater than the first component of the positions of the original candidates. Each copy then has
+     * the same score as its original and a greater position; the dropped originals cover their copies and
+     * so do all the candidates that cover the originals. Therefore, the copies of the dropped candidates
+     * would be dropped as well and the result is the same as if the equivalent style map was scanned.
+     * @param styleMap the original style map
+     * @param equivalent the equivalent style map
+     * @param styleIndex the index of the equivalent style map in the scan (the first component
+     * of the candidate positions)
+     */
+    public synchronized void addEquivalent(Map<Tag, AreaStyle> styleMap, Map<Tag, AreaStyle> equivalent, int styleIndex)
+    {
+        for (Entry entry : new ArrayList<>(entries))
+        {
+            if (entry.conf.getStyleMap() == styleMap)
+            {
+                final int[] position = Arrays.copyOf(entry.position, entry.position.length);
+                position[0] = styleIndex;
+                insert(new Entry(new MatcherConfiguration(entry.conf, equivalent), position));
+            }
+        }
+    }
+    
+    private void insert(Entry entry)
+    {
+        for (Entry other : entries)
+        {
+            if (other.covers(entry))
+                entry.coveredBy++;
+        }
+        if (entry.coveredBy < limit)
+        {
+            //update the existing entries
+            List<Entry> removed = new ArrayList<>();
+            for (Iterator<Entry> it = entries.iterator(); it.hasNext(); )
+            {
+                final Entry other = it.next();
+                if (entry.covers(other))
+                {
+                    other.coveredBy++;
+                    if (other.coveredBy >= limit)
+                    {
+                        it.remove();
+                        removed.add(other);
+                    }
+                }
+            }
+            entries.add(entry);
+            //the entries covered by the removed ones lose one cover
+            for (Entry rem : removed)
+            {
+                for (Entry other : entries)
+                {
+                    if (rem.covers(other))
+                        other.coveredBy--;
+                }
+            }
+            if (entries.size() > limit * CAPACITY_FACTOR)
+                rerank();
+        }
+    }
+    
+    /**
+     * Checks whether a candidate with the given upper bounds of the number of matched areas and
+     * of the area independent score would be certainly out of the best candidates.
+     * @param maxAreas the maximal number of areas the candidate may match
+     * @param maxScore the maximal area independent score the candidate may reach
+     * @return {@code true} when there are already enough candidates with a better score 
+     */
+    public synchronized boolean isOutranked(int maxAreas, float maxScore)
+    {
+        return entries.size() >= limit && getOutrankingCount(maxAreas, maxScore, limit) >= limit;
+    }
+    
+    /**
+     * Counts the candidates that are certainly better than a candidate with the given upper bounds of
+     * the number of matched areas and of the area independent score.
+     * @param maxAreas the maximal number of areas the candidate may match
+     * @param maxScore the maximal area independent score the candidate may reach
+     * @param max the count at which the counting stops
+     * @return the number of better candidates up to {@code max}
+     */
+    public synchronized int getOutrankingCount(int maxAreas, float maxScore, int max)
+    {
+        int cnt = 0;
+        for (Entry entry : entries)
+        {
+            if (cnt >= max)
+                break;
+            if ((entry.areas > maxAreas && entry.score >= maxScore)
+                    || (entry.areas >= maxAreas && entry.score > maxScore + SCORE_EPSILON))
+                cnt++;
+        }
+        return cnt;
+    }
+    
+    /**
+     * Obtains the best candidates sorted by their result score (the best ones first). The candidates
+     * with equal scores are sorted by their scan positions.
+     * @return the list of at most {@code limit} best candidates
+     */
+    public synchronized List<MatcherConfiguration> getBest()
+    {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(new Comparator<Entry>()
+        {
+            @Override
+            public int compare(Entry o1, Entry o2)
+            {
+                final int comp = o2.conf.getResult().compareTo(o1.conf.getResult());
+                if (comp != 0)
+                    return comp;
+                else
+                    return comparePositions(o1.position, o2.position);
+            }
+        });
+        final int cnt = Math.min(limit, sorted.size());
+        List<MatcherConfiguration> ret = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++)
+            ret.add(sorted.get(i).conf);
+        return ret;
+    }
+    
+    //==================================================================================================
+    
+    /**
+     * Keeps the candidates that are covered by the lowest number of other candidates. The final scores
+     * cannot be used since they depend on the global statistics that are not known yet.
+     */
+    private void rerank()
+    {
+        entries.sort(new Comparator<Entry>()
+        {
+            @Override
+            public int compare(Entry o1, Entry o2)
+            {
+                if (o1.coveredBy != o2.coveredBy)
+                    return o1.coveredBy - o2.coveredBy;
+                else if (o1.areas != o2.areas)
+                    return o2.areas - o1.areas;
+                else if (o1.score != o2.score)
+                    return Float.compare(o2.score, o1.score);
+                else
+                    return comparePositions(o1.position, o2.position);
+            }
+        });
+        final int keep = limit * RERANK_FACTOR;
+        evicted += entries.size() - keep;
+        entries = new ArrayList<>(entries.subList(0, keep));
+        //recount the covers among the kept entries
+        for (Entry entry : entries)
+        {
+            entry.coveredBy = 0;
+            for (Entry other : entries)
+            {
+                if (other.covers(entry))
+                    entry.coveredBy++;
+            }
+        }
+    }
+    
+    private static int comparePositions(int[] p1, int[] p2)
+    {
+        for (int i = 0; i < p1.length && i < p2.length; i++)
+        {
+            if (p1[i] != p2[i])
+                return p1[i] - p2[i];
+        }
+        return p1.length - p2.length;
+    }
+    
+    private static class Entry
+    {
+        public MatcherConfiguration conf;
+        public int[] position;
+        public int areas;
+        public float score;
+        public int coveredBy;
+        
+        public Entry(MatcherConfiguration conf, int[] position)
+        {
+            this.conf = conf;
+            this.position = position;
+            this.areas = conf.getResult().getMatchedAreas();
+            this.score = conf.getResult().getAreaIndependentScore();
+            this.coveredBy = 0;
+        }
+        
+        /**
+         * Checks whether this entry precedes another entry in the final ordering
+         * regardless of the global statistics.
+         */
+        public boolean covers(Entry other)
+        {
+            if (areas > other.areas)
+                return score >= other.score;
+            else if (areas == other.areas)
+            {
+                if (score > other.score + SCORE_EPSILON)
+                    return true;
+                else if (hasEqualScore(other))
+                    return comparePositions(position, other.position) < 0;
+                else
+                    return false;
+            }
+            else
+                return false;
+        }
+        
+        private boolean hasEqualScore(Entry other)
+        {
+            final MatchResultScore s1 = conf.getResult();
+            final MatchResultScore s2 = other.conf.getResult();
+            return s1.getAverageConnectionWeight() == s2.getAverageConnectionWeight()
+                    && s1.getConnectionWeightSigma() == s2.getConnectionWeightSigma()
+                    && s1.getStyleConsistency() == s2.getStyleConsistency()
+                    && s1.getHintScore() == s2.getHintScore();
+        }
+    }
+    
+}
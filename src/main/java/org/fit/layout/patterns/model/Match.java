@@ -209,7 +209,17 @@ public class Match extends HashMap<Tag, List<Area>>
     
     public boolean overlapsArea(Area a)
     {
-        return AreaUtils.areasOverlap(a, getAllAreas(), MIN_OVERLAP_PERCENTAGE);
+        for (List<Area> matchAreas : values())
+        {
+            if (AreaUtils.areasOverlap(a, matchAreas, MIN_OVERLAP_PERCENTAGE))
+                return true;
+        }
+        for (Match sub : subMatches)
+        {
+            if (sub.overlapsArea(a))
+                return true;
+        }
+        return false;
     }
     
     /**
@@ -398,7 +398,7 @@ public class MatchResult
                 }
                 //add the styles of all areas assigned to the tag to the counter
                 for (Area a : entry.getValue())
-                    counter.add(new AreaStyle(a));
+                    counter.add(AreaStyleCache.getStyle(a));
             }
         }
         return styles;
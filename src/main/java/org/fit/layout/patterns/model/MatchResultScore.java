@@ -15,6 +15,17 @@ import java.util.List;
  */
 public class MatchResultScore implements Comparable<MatchResultScore>
 {
+    //weights of the individual components of the overall score (discovered from CEUR dataset)
+    private static final float W_COVERED_MATCHES = 0.0f;
+    private static final float W_COVERED_AREAS = 0.36f;
+    private static final float W_AVG_WEIGHT = 0.44f;
+    private static final float W_WEIGHT_SIGMA = 0.28f;
+    private static final float W_STYLE_CONSISTENCY = 0.74f;
+    private static final float W_HINT_SCORE = 0.14f;
+    private static final float W_TOTAL = 1.96f;
+    /** A tolerance added to the score bounds in order to compensate the rounding of the statistics */
+    private static final float BOUND_TOLERANCE = 0.001f;
+    
     /** A list of comparators that are used for comparing the match result in the given order. */
     private static List<Comparator<MatchResultScore>> cclist;
     static {
@@ -269,13 +280,13 @@ public class MatchResultScore implements Comparable<MatchResultScore>
                 / 3.25f;*/
         
         //discovered from CEUR dataset
-        return (0.0f  * getCoveredMatches() +
-                0.36f * getCoveredAreas() +
-                0.44f * getAverageConnectionWeight() +
-                0.28f * getConnectionWeightSigma() +
-                0.74f * getStyleConsistency() +
-                0.14f * getHintScore())
-                / 1.96f;
+        return (W_COVERED_MATCHES   * getCoveredMatches() +
+                W_COVERED_AREAS     * getCoveredAreas() +
+                W_AVG_WEIGHT        * getAverageConnectionWeight() +
+                W_WEIGHT_SIGMA      * getConnectionWeightSigma() +
+                W_STYLE_CONSISTENCY * getStyleConsistency() +
+                W_HINT_SCORE        * getHintScore())
+                / W_TOTAL;
         
         //w1
         /*return 1.076f  * getCoveredMatches() +
@@ -288,11 +299,42 @@ public class MatchResultScore implements Comparable<MatchResultScore>
         
     }
     
+    /**
+     * Computes the part of the overall score that depends neither on the number of matched areas
+     * nor on the global statistics. When two results have the same statistics, the result with greater
+     * or equal number of matched areas and a greater area independent score always has a greater overall score.
+     * @return the area independent part of the overall score
+     */
+    public float getAreaIndependentScore()
+    {
+        return (W_AVG_WEIGHT        * getAverageConnectionWeight() +
+                W_WEIGHT_SIGMA      * getConnectionWeightSigma() +
+                W_STYLE_CONSISTENCY * getStyleConsistency() +
+                W_HINT_SCORE        * getHintScore())
+                / W_TOTAL;
+    }
+    
+    /**
+     * Computes an upper bound of the area independent score (see {@link #getAreaIndependentScore()})
+     * that may be reached by a configuration.
+     * @param maxWeight the maximal weight of the area connections that may be used by the configuration
+     * @param hintScore the hint score of the configuration
+     * @return the upper bound of the area independent score
+     */
+    public static float getAreaIndependentScoreBound(float maxWeight, float hintScore)
+    {
+        //the average weight cannot exceed the maximal weight, the standard deviation of the
+        //values from [0, maxWeight] cannot exceed maxWeight / 2, the style consistency is at most 1.0
+        return (W_AVG_WEIGHT        * maxWeight +
+                W_WEIGHT_SIGMA      * maxWeight / 2.0f +
+                W_STYLE_CONSISTENCY * 1.0f +
+                W_HINT_SCORE        * hintScore)
+                / W_TOTAL + BOUND_TOLERANCE;
+    }
+    
     public void updateStats()
     {
-        stats.setMaxMatches(Math.max(stats.getMaxMatches(), getMatches()));
-        stats.setMaxAreas(Math.max(stats.getMaxAreas(), getMatchedAreas()));
-        stats.setMaxMM(Math.max(stats.getMaxMM(), getMinMetric()));
+        stats.update(getMatches(), getMatchedAreas(), getMinMetric());
     }
     
     @Override
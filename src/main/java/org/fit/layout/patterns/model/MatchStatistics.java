@@ -6,7 +6,8 @@
 package org.fit.layout.patterns.model;
 
 /**
- * Global statistics about a set od match results.
+ * Global statistics about a set od match results. The statistics may be shared among
+ * configurations evaluated in parallel; all the access methods are synchronized.
  * 
  * @author burgetr
  */
@@ -16,34 +17,47 @@ public class MatchStatistics
     private int maxAreas = 0;
     private float maxMM = 0.0f;
     
-    public int getMaxMatches()
+    public synchronized int getMaxMatches()
     {
         return maxMatches;
     }
     
-    public void setMaxMatches(int maxMatches)
+    public synchronized void setMaxMatches(int maxMatches)
     {
         this.maxMatches = maxMatches;
     }
     
-    public int getMaxAreas()
+    public synchronized int getMaxAreas()
     {
         return maxAreas;
     }
     
-    public void setMaxAreas(int maxAreas)
+    public synchronized void setMaxAreas(int maxAreas)
     {
         this.maxAreas = maxAreas;
     }
 
-    public float getMaxMM()
+    public synchronized float getMaxMM()
     {
         return maxMM;
     }
 
-    public void setMaxMM(float maxMM)
+    public synchronized void setMaxMM(float maxMM)
     {
         this.maxMM = maxMM;
     }
     
+    /**
+     * Atomically updates the maximal values with the values obtained from a new match result.
+     * @param matches the number of matches of the new result
+     * @param areas the number of matched areas of the new result
+     * @param mm the min metric value of the new result
+     */
+    public synchronized void update(int matches, int areas, float mm)
+    {
+        maxMatches = Math.max(maxMatches, matches);
+        maxAreas = Math.max(maxAreas, areas);
+        maxMM = Math.max(maxMM, mm);
+    }
+    
 }
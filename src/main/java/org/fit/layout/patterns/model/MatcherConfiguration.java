@@ -42,6 +42,20 @@ public class MatcherConfiguration
         this(src.getStyleMap(), src.getPattern(), src.getResult());
     }
     
+    /**
+     * Creates a copy of a configuration including its constraints, hints and result that uses
+     * a different style map.
+     * @param src the source configuration
+     * @param styleMap the style map to be used
+     */
+    public MatcherConfiguration(MatcherConfiguration src, Map<Tag, AreaStyle> styleMap)
+    {
+        this(styleMap, src.getPattern(), src.getResult());
+        this.constraints = src.getConstraints();
+        this.hints = src.getHints();
+        this.hintScore = src.getHintScore();
+    }
+    
     public Map<Tag, AreaStyle> getStyleMap()
     {
         return styleMap;
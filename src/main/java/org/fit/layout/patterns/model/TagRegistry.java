@@ -0,0 +1,98 @@
+/**
+ * TagRegistry.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fit.layout.model.Tag;
+
+/**
+ * A registry that assigns dense integer ordinals (0, 1, 2, ...) to the tags. The ordinals are used
+ * for representing the sets of tags as bit sets (see {@link TagSet}). The ordinal of a tag never
+ * changes once assigned and the registry never shrinks; therefore, it should be scoped to a single
+ * matching task (e.g. a configuration scan) rather than shared globally. The registry may be used
+ * from multiple threads.
+ */
+public class TagRegistry
+{
+    private Map<Tag, Integer> ordinals;
+    private volatile Tag[] tags;
+    private int size;
+
+
+    public TagRegistry()
+    {
+        ordinals = new ConcurrentHashMap<>();
+        tags = new Tag[64];
+        size = 0;
+    }
+
+    /**
+     * Obtains the ordinal of the tag. A new ordinal is assigned when the tag has not been registered yet.
+     * @param tag the tag
+     * @return the tag ordinal
+     */
+    public int getOrdinal(Tag tag)
+    {
+        final Integer ord = ordinals.get(tag);
+        if (ord != null)
+            return ord;
+        else
+            return register(tag);
+    }
+
+    /**
+     * Obtains the ordinal of the tag without registering it.
+     * @param tag the tag
+     * @return the tag ordinal or -1 when the tag has not been registered
+     */
+    public int findOrdinal(Object tag)
+    {
+        final Integer ord = ordinals.get(tag);
+        return (ord == null) ? -1 : ord;
+    }
+
+    /**
+     * Obtains the tag with the given ordinal.
+     * @param ordinal the tag ordinal
+     * @return the tag
+     */
+    public Tag getTag(int ordinal)
+    {
+        return tags[ordinal];
+    }
+
+    /**
+     * Obtains the number of registered tags.
+     * @return the number of tags
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    //==============================================================================================
+
+    private synchronized int register(Tag tag)
+    {
+        final Integer ord = ordinals.get(tag);
+        if (ord != null)
+            return ord; //registered meanwhile
+        final int ret = size;
+        //the tag is published in the array before the ordinal becomes visible
+        Tag[] t = tags;
+        if (ret == t.length)
+            t = Arrays.copyOf(t, t.length * 2);
+        t[ret] = tag;
+        tags = t;
+        ordinals.put(tag, ret);
+        size++;
+        return ret;
+    }
+
+}
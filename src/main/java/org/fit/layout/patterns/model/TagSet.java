@@ -0,0 +1,345 @@
+/**
+ * TagSet.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.fit.layout.model.Tag;
+
+/**
+ * A set of tags represented as a bit set of the tag ordinals assigned by a {@link TagRegistry}.
+ * The membership tests and the set operations with other tag sets of the same registry are performed
+ * on whole machine words; the first 64 tags fit in a single word. The standard {@code Set} operations
+ * with other collections work as well; the tags are registered when added to the set.
+ * The set may be made unmodifiable using {@link #unmodifiable()}.
+ */
+public class TagSet extends AbstractSet<Tag>
+{
+    private TagRegistry registry;
+    private long[] words;
+    private boolean modifiable;
+
+
+    /**
+     * Creates an empty set.
+     * @param registry the registry used for the tag ordinals
+     */
+    public TagSet(TagRegistry registry)
+    {
+        this.registry = registry;
+        words = new long[1];
+        modifiable = true;
+    }
+
+    /**
+     * Creates a set containing the given tags.
+     * @param registry the registry used for the tag ordinals
+     * @param tags the tags to be added
+     */
+    public TagSet(TagRegistry registry, Collection<? extends Tag> tags)
+    {
+        this(registry);
+        addAll(tags);
+    }
+
+    /**
+     * Creates a copy of another set. The copy is modifiable.
+     * @param src the source set
+     */
+    public TagSet(TagSet src)
+    {
+        registry = src.registry;
+        words = src.words.clone();
+        modifiable = true;
+    }
+
+    public TagRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * Creates an unmodifiable copy of this set.
+     * @return the unmodifiable set
+     */
+    public TagSet unmodifiable()
+    {
+        TagSet ret = new TagSet(this);
+        ret.modifiable = false;
+        return ret;
+    }
+
+    //==============================================================================================
+
+    /**
+     * Checks whether the set contains the tag with the given ordinal.
+     * @param ordinal the tag ordinal
+     * @return {@code true} when the tag is contained in the set
+     */
+    public boolean contains(int ordinal)
+    {
+        final int w = ordinal >>> 6;
+        return ordinal >= 0 && w < words.length && (words[w] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Adds the tag with the given ordinal.
+     * @param ordinal the tag ordinal
+     * @return {@code true} when the set has changed
+     */
+    public boolean add(int ordinal)
+    {
+        checkModifiable();
+        final int w = ordinal >>> 6;
+        if (w >= words.length)
+            words = Arrays.copyOf(words, w + 1);
+        final long prev = words[w];
+        words[w] |= (1L << ordinal);
+        return words[w] != prev;
+    }
+
+    /**
+     * Checks whether this set has some common tags with another set.
+     * @param other the other set
+     * @return {@code true} when the sets intersect
+     */
+    public boolean intersects(TagSet other)
+    {
+        checkRegistry(other);
+        final int n = Math.min(words.length, other.words.length);
+        for (int i = 0; i < n; i++)
+        {
+            if ((words[i] & other.words[i]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this set contains all the tags of another set.
+     * @param other the other set
+     * @return {@code true} when the other set is a subset of this set
+     */
+    public boolean containsAll(TagSet other)
+    {
+        checkRegistry(other);
+        for (int i = 0; i < other.words.length; i++)
+        {
+            final long w = (i < words.length) ? words[i] : 0L;
+            if ((other.words[i] & ~w) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the smallest ordinal contained in the set that is greater or equal to the given one.
+     * @param from the ordinal to start with
+     * @return the ordinal or -1 when there is no such ordinal
+     */
+    public int nextOrdinal(int from)
+    {
+        int w = from >>> 6;
+        if (w >= words.length)
+            return -1;
+        long word = words[w] & (-1L << from);
+        while (true)
+        {
+            if (word != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length)
+                return -1;
+            word = words[w];
+        }
+    }
+
+    //==============================================================================================
+
+    @Override
+    public int size()
+    {
+        int ret = 0;
+        for (long w : words)
+            ret += Long.bitCount(w);
+        return ret;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for (long w : words)
+        {
+            if (w != 0)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return contains(registry.findOrdinal(o));
+    }
+
+    @Override
+    public boolean add(Tag tag)
+    {
+        return add(registry.getOrdinal(tag));
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        checkModifiable();
+        final int ordinal = registry.findOrdinal(o);
+        if (contains(ordinal))
+        {
+            words[ordinal >>> 6] &= ~(1L << ordinal);
+            return true;
+        }
+        else
+            return false;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c)
+    {
+        if (c instanceof TagSet && ((TagSet) c).registry == registry)
+            return containsAll((TagSet) c);
+        else
+            return super.containsAll(c);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Tag> c)
+    {
+        if (c instanceof TagSet && ((TagSet) c).registry == registry)
+        {
+            checkModifiable();
+            final TagSet other = (TagSet) c;
+            if (other.words.length > words.length)
+                words = Arrays.copyOf(words, other.words.length);
+            boolean changed = false;
+            for (int i = 0; i < other.words.length; i++)
+            {
+                final long prev = words[i];
+                words[i] |= other.words[i];
+                changed |= (words[i] != prev);
+            }
+            return changed;
+        }
+        else
+            return super.addAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        if (c instanceof TagSet && ((TagSet) c).registry == registry)
+        {
+            checkModifiable();
+            final TagSet other = (TagSet) c;
+            boolean changed = false;
+            for (int i = 0; i < words.length; i++)
+            {
+                final long prev = words[i];
+                words[i] &= (i < other.words.length) ? other.words[i] : 0L;
+                changed |= (words[i] != prev);
+            }
+            return changed;
+        }
+        else
+            return super.retainAll(c);
+    }
+
+    @Override
+    public void clear()
+    {
+        checkModifiable();
+        Arrays.fill(words, 0L);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o instanceof TagSet && ((TagSet) o).registry == registry)
+        {
+            final TagSet other = (TagSet) o;
+            final int n = Math.max(words.length, other.words.length);
+            for (int i = 0; i < n; i++)
+            {
+                final long w1 = (i < words.length) ? words[i] : 0L;
+                final long w2 = (i < other.words.length) ? other.words[i] : 0L;
+                if (w1 != w2)
+                    return false;
+            }
+            return true;
+        }
+        else
+            return super.equals(o);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return super.hashCode(); //must be compatible with the other sets
+    }
+
+    @Override
+    public Iterator<Tag> iterator()
+    {
+        return new Iterator<Tag>()
+        {
+            private int next = nextOrdinal(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != -1;
+            }
+
+            @Override
+            public Tag next()
+            {
+                if (next == -1)
+                    throw new NoSuchElementException();
+                last = next;
+                next = nextOrdinal(next + 1);
+                return registry.getTag(last);
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last == -1)
+                    throw new IllegalStateException();
+                checkModifiable();
+                words[last >>> 6] &= ~(1L << last);
+                last = -1;
+            }
+        };
+    }
+
+    //==============================================================================================
+
+    private void checkModifiable()
+    {
+        if (!modifiable)
+            throw new UnsupportedOperationException("The tag set is unmodifiable");
+    }
+
+    private void checkRegistry(TagSet other)
+    {
+        if (other.registry != registry)
+            throw new IllegalArgumentException("The tag sets use different registries");
+    }
+
+}
@@ -0,0 +1,402 @@
+/**
+ * MatchSearchTest.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.fit.layout.impl.DefaultTag;
+import org.fit.layout.model.Area;
+import org.fit.layout.model.Rectangular;
+import org.fit.layout.model.Tag;
+import org.fit.layout.patterns.model.AreaConnection;
+import org.fit.layout.patterns.model.ConnectionPattern;
+import org.fit.layout.patterns.model.Match;
+import org.fit.layout.patterns.model.MatchResult;
+import org.fit.layout.patterns.model.MatcherConfiguration;
+import org.fit.layout.patterns.model.TagConnection;
+import org.junit.Test;
+
+/**
+ * Compares the match search implementations with a reference recursive search on random pages.
+ */
+public class MatchSearchTest
+{
+    private static final int PAGE_COUNT = 1000;
+    private static final Relation[] RELATIONS = {Relation.BELOW, Relation.ONRIGHT};
+
+    @Test
+    public void depthFirstSearchEqualsRecursiveSearch()
+    {
+        final Random rand = new Random(1);
+        for (int i = 0; i < PAGE_COUNT; i++)
+        {
+            final TestPage page = new TestPage(rand, true, true);
+            final MatchResult expected = new RecursiveMatchSearch(page.matcher, page.conf, page.createAnalyzer(),
+                    page.createResolver(), page.tagAreas, page.depMatches).run();
+            final MatchResult result = new MatchSearch(page.matcher, page.conf, null, page.createAnalyzer(),
+                    page.createResolver(), page.tagAreas, page.depMatches).run();
+            assertSameResult("page " + i, expected, result);
+        }
+    }
+
+    @Test
+    public void plannedSearchEqualsRecursiveSearch()
+    {
+        final Random rand = new Random(2);
+        int reordered = 0;
+        for (int i = 0; i < PAGE_COUNT; i++)
+        {
+            final TestPage page = new TestPage(rand, true, true);
+            final MatchResult expected = new RecursiveMatchSearch(page.matcher, page.conf, page.createAnalyzer(),
+                    page.createResolver(), page.tagAreas, page.depMatches).run();
+            final RelationAnalyzer pa = page.createAnalyzer();
+            final MatchPlan plan = new MatchPlanner(pa, page.tagAreas, page.depMatches).plan(page.conf.getPattern());
+            final MatchResult result = new MatchSearch(page.matcher, page.conf, plan, pa,
+                    page.createResolver(), page.tagAreas, page.depMatches).run();
+            assertSameResult("page " + i + " " + plan, expected, result);
+            if (plan.isReordered())
+                reordered++;
+        }
+        assertTrue("no reordered plans", reordered > 0);
+    }
+
+    @Test
+    public void joinSearchEqualsRecursiveSearch()
+    {
+        final Random rand = new Random(3);
+        int joined = 0;
+        for (int i = 0; i < PAGE_COUNT; i++)
+        {
+            final TestPage page = new TestPage(rand, false, true);
+            final JoinMatchSearch search = new JoinMatchSearch(page.matcher, page.conf, page.createAnalyzer(),
+                    page.createResolver(), page.tagAreas, null);
+            if (search.isApplicable())
+            {
+                final MatchResult expected = new RecursiveMatchSearch(page.matcher, page.conf, page.createAnalyzer(),
+                        page.createResolver(), page.tagAreas, page.depMatches).run();
+                assertSameResult("page " + i, expected, search.run());
+                joined++;
+            }
+        }
+        assertTrue("not enough tree patterns", joined > PAGE_COUNT / 2);
+    }
+
+    //==============================================================================================
+
+    private static void assertSameResult(String msg, MatchResult expected, MatchResult result)
+    {
+        assertEquals(msg, new HashSet<>(expected.getMatches()), new HashSet<>(result.getMatches()));
+        assertEquals(msg, new HashSet<>(expected.getMatchedAreas()), new HashSet<>(result.getMatchedAreas()));
+        final Map<Match, Match> index = new HashMap<>();
+        for (Match m : expected.getMatches())
+            index.put(m, m);
+        for (Match m : result.getMatches())
+        {
+            final Match e = index.get(m);
+            assertEquals(msg, e.getAreaConnections1().toString(), m.getAreaConnections1().toString());
+            assertEquals(msg, e.getAreaConnectionsM1().toString(), m.getAreaConnectionsM1().toString());
+        }
+    }
+
+    private static Area createArea(final int id, final Rectangular bounds, final Set<Tag> supportedTags)
+    {
+        return (Area) Proxy.newProxyInstance(Area.class.getClassLoader(), new Class<?>[] {Area.class}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "getId": return id;
+                case "getBounds": return bounds;
+                case "getSupportedTags": return new HashSet<>(supportedTags);
+                case "hashCode": return id;
+                case "equals": return proxy == args[0];
+                case "toString": return "A" + id;
+                default:
+                    final Class<?> type = method.getReturnType();
+                    if (type == boolean.class) return false;
+                    if (type == int.class) return 0;
+                    if (type == float.class) return 0.0f;
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * A random page: tagged areas, their connections and a configuration to be matched.
+     */
+    private static class TestPage
+    {
+        final AttributeGroupMatcher matcher;
+        final List<Area> areas;
+        final Map<Area, Set<Tag>> areaTags;
+        final List<AreaConnection> connections;
+        final MatcherConfiguration conf;
+        final Map<Tag, Set<Area>> tagAreas;
+        final Map<Tag, Collection<Match>> depMatches;
+
+        public TestPage(Random rand, boolean useDependencies, boolean allowNonTree)
+        {
+            final int k = 2 + rand.nextInt(4);
+            final Tag[] tags = new Tag[k];
+            final List<AttributeGroupMatcher.Attribute> attrs = new ArrayList<>(k);
+            for (int i = 0; i < k; i++)
+            {
+                tags[i] = new DefaultTag("test", "t" + i);
+                attrs.add(new AttributeGroupMatcher.Attribute(tags[i], 0.1f, true, i > 0 && rand.nextInt(3) == 0, false));
+            }
+            matcher = new AttributeGroupMatcher(attrs);
+            //the areas
+            final int n = 5 + rand.nextInt(40);
+            areas = new ArrayList<>(n);
+            areaTags = new HashMap<>();
+            for (int i = 0; i < n; i++)
+            {
+                final int x = rand.nextInt(300);
+                final int y = rand.nextInt(300);
+                final Set<Tag> supported = new HashSet<>(); //the tags assigned to the area
+                final Set<Tag> atags = new HashSet<>(); //the tags inferred from the style
+                for (Tag t : tags)
+                {
+                    if (rand.nextInt(3) == 0)
+                        supported.add(t);
+                    if (rand.nextInt(4) > 0)
+                        atags.add(t);
+                }
+                final Area a = createArea(i, new Rectangular(x, y, x + 5 + rand.nextInt(60), y + 5 + rand.nextInt(30)), supported);
+                areas.add(a);
+                areaTags.put(a, atags);
+            }
+            connections = new ArrayList<>();
+            final int nc = rand.nextInt(n * 6);
+            for (int i = 0; i < nc; i++)
+                connections.add(new AreaConnection(areas.get(rand.nextInt(n)), areas.get(rand.nextInt(n)),
+                        RELATIONS[rand.nextInt(2)], (1 + rand.nextInt(5)) / 5.0f));
+            //the pattern: a random tree with the first connection kept first
+            final List<TagConnection> pairs = new ArrayList<>(k);
+            for (int i = 1; i < k; i++)
+                pairs.add(new TagConnection(tags[i], tags[rand.nextInt(i)], RELATIONS[rand.nextInt(2)], 1.0f));
+            final TagConnection first = pairs.remove(0);
+            Collections.shuffle(pairs, rand);
+            pairs.add(0, first);
+            if (allowNonTree && rand.nextInt(4) == 0)
+                pairs.add(new TagConnection(tags[rand.nextInt(k)], tags[rand.nextInt(k)], RELATIONS[rand.nextInt(2)], 1.0f));
+            final ConnectionPattern pattern = new ConnectionPattern(pairs.size());
+            pattern.addAll(pairs);
+            conf = new MatcherConfiguration(new HashMap<>(), pattern, null);
+            if (rand.nextInt(3) == 0)
+            {
+                final ConnectionPattern constraints = new ConnectionPattern(1);
+                constraints.add(new TagConnection(tags[rand.nextInt(k)], tags[rand.nextInt(k)], RELATIONS[rand.nextInt(2)], 1.0f));
+                conf.setConstraints(constraints);
+            }
+            //the candidate areas of the tags
+            tagAreas = new HashMap<>();
+            for (Tag t : tags)
+                tagAreas.put(t, new HashSet<>());
+            final StyleResolver dis = createResolver();
+            for (Area a : areas)
+            {
+                for (Tag t : dis.getAreaTags(a))
+                    tagAreas.get(t).add(a);
+            }
+            //the dependency matches
+            depMatches = new HashMap<>();
+            if (useDependencies && rand.nextInt(3) == 0)
+            {
+                final Tag dt = tags[rand.nextInt(k)];
+                final Set<Match> deps = new LinkedHashSet<>();
+                final int cnt = 1 + rand.nextInt(5);
+                for (int j = 0; j < cnt; j++)
+                {
+                    final Match m = new Match();
+                    final List<Area> list = new ArrayList<>();
+                    final int acnt = 1 + rand.nextInt(2);
+                    for (int q = 0; q < acnt; q++)
+                        list.add(areas.get(rand.nextInt(n)));
+                    m.put(dt, list);
+                    deps.add(m);
+                }
+                depMatches.put(dt, deps);
+            }
+        }
+
+        public RelationAnalyzer createAnalyzer()
+        {
+            return new RelationAnalyzer(areas)
+            {
+                @Override
+                public List<Relation> getAnalyzedRelations()
+                {
+                    return Arrays.asList(RELATIONS);
+                }
+
+                @Override
+                protected void addConnections()
+                {
+                    for (AreaConnection con : connections)
+                        addAreaConnection(con);
+                }
+            };
+        }
+
+        public StyleResolver createResolver()
+        {
+            return new StyleResolver(a -> new HashSet<>(areaTags.get(a)), 0.1f);
+        }
+    }
+
+    //==============================================================================================
+
+    /**
+     * The reference implementation: a straightforward recursive search that creates a new match
+     * for every step and checks the consistency constraints for the complete matches only.
+     */
+    private static class RecursiveMatchSearch extends BaseMatchSearch
+    {
+        private final Map<Tag, Collection<Match>> depMatches;
+        private final List<TagConnection> pattern;
+
+        public RecursiveMatchSearch(Matcher matcher, MatcherConfiguration conf, RelationAnalyzer pa, StyleResolver dis,
+                Map<Tag, Set<Area>> tagAreas, Map<Tag, Collection<Match>> depMatches)
+        {
+            super(matcher, conf, pa, dis, tagAreas);
+            this.depMatches = depMatches;
+            this.pattern = new ArrayList<>(conf.getPattern());
+        }
+
+        @Override
+        public MatchResult run()
+        {
+            List<TagConnection> pairs = new ArrayList<>(pattern); //pairs to go
+            TagConnection curPair = pairs.remove(0);
+            Collection<Match> deps = depMatches.get(curPair.getA2());
+            if (deps != null)
+            {
+                for (Match dmatch : deps)
+                {
+                    if (dmatch.isDisjointWith(matchedAreas)) //the match does not contain any already matched area
+                    {
+                        for (Area a : dmatch.get(curPair.getA2()))
+                        {
+                            Match match = new Match();
+                            match.addSubMatch(dmatch);
+                            findMatchesFor(a, curPair, pairs, match);
+                        }
+                    }
+                }
+            }
+            else
+            {
+                for (Area a : tagAreas.get(curPair.getA2()))
+                {
+                    if (!isAlreadyUsed(a, matchedAreas))
+                    {
+                        Match match = new Match();
+                        match.putSingle(curPair.getA2(), a);
+                        findMatchesFor(a, curPair, pairs, match);
+                    }
+                }
+            }
+            return new MatchResult(matches, matchedAreas, pa);
+        }
+
+        private void findMatchesFor(Area a, TagConnection curPair, List<TagConnection> pairs, Match curMatch)
+        {
+            final boolean a1Many = matcher.isTagMany(curPair.getA1());
+            final boolean a2Many = matcher.isTagMany(curPair.getA2());
+            Collection<Match> deps = depMatches.get(curPair.getA1());
+            List<AreaConnection> inrel = getAreasInBestRelation(pa, a, curPair.getRelation(), curPair.getA2(), curPair.getA1(), a1Many, dis);
+            if (deps != null)
+            {
+                for (Match match : deps)
+                {
+                    if (match.isDisjointWith(matchedAreas) && match.isDisjointWith(curMatch))
+                    {
+                        final List<Area> ref = match.get(curPair.getA1());
+                        for (AreaConnection con : inrel)
+                        {
+                            if (ref.contains(con.getA1()))
+                            {
+                                Area b = con.getA1();
+                                boolean mayUse = a1Many || !isAlreadyUsed(b, matchedAreas);
+                                if (mayUse && !curMatch.containsArea(b))
+                                {
+                                    Match nextMatch = new Match(curMatch);
+                                    nextMatch.addSubMatch(match);
+                                    nextMatch.addAreaConnection(curPair, con, a1Many);
+                                    tryNewMatch(nextMatch, pairs);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            else
+            {
+                Set<Area> destSet = tagAreas.get(curPair.getA1());
+                List<Area> addedMatches = new ArrayList<>();
+                List<AreaConnection> addedConnections = new ArrayList<>();
+                for (AreaConnection con : inrel)
+                {
+                    Area b = con.getA1();
+                    boolean mayUse = a2Many || !isAlreadyUsed(b, matchedAreas);
+                    if (mayUse && destSet.contains(b) && !curMatch.overlapsArea(b))
+                    {
+                        addedMatches.add(b);
+                        addedConnections.add(con);
+                        if (!a1Many)
+                            break; //only a single match allowed
+                    }
+                }
+                if (!addedMatches.isEmpty())
+                {
+                    Match nextMatch = new Match(curMatch);
+                    nextMatch.put(curPair.getA1(), addedMatches);
+                    for (AreaConnection con : addedConnections)
+                        nextMatch.addAreaConnection(curPair, con, false);
+                    tryNewMatch(nextMatch, pairs);
+                }
+            }
+        }
+
+        private void tryNewMatch(Match nextMatch, List<TagConnection> pairs)
+        {
+            if (!pairs.isEmpty()) //some pairs are remaining -- continue recursively
+            {
+                List<TagConnection> nextPairs = new ArrayList<>(pairs);
+                TagConnection nextPair = null;
+                for (int i = 0; nextPair == null && i < nextPairs.size(); i++)
+                {
+                    if (nextMatch.containsKey(nextPairs.get(i).getA2())) //found a connected pair
+                        nextPair = nextPairs.remove(i);
+                }
+                if (nextPair != null)
+                    findMatchesFor(nextMatch.getSingle(nextPair.getA2()), nextPair, nextPairs, nextMatch);
+            }
+            else //no pairs remaining -- a complete match
+            {
+                if (constraints == null || matchesConstraints(pa, nextMatch, constraints))
+                {
+                    matches.add(nextMatch);
+                    nextMatch.addAllAreasTo(matchedAreas);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * StyleClassifierTest.java
+ *
+ * Created on 18. 10. 2026
+ */
+package org.fit.layout.patterns;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import weka.classifiers.lazy.IBk;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Compares the native style classifier with Weka's {@code IBk} using the default settings on random
+ * training sets. The training sets include the extra {@code none} class value in the same way as
+ * {@link StyleAnalyzerClassify}.
+ */
+public class StyleClassifierTest
+{
+    private static final int SET_COUNT = 300;
+    private static final int QUERY_COUNT = 30;
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void distributionEqualsIBk() throws Exception
+    {
+        final Random rand = new Random(11);
+        for (int set = 0; set < SET_COUNT; set++)
+        {
+            final int classCount = 2 + rand.nextInt(3);
+            final Instances trainset = createTrainingSet(classCount);
+            final StyleClassifier classifier = new StyleClassifier(classCount + 1, 1);
+            final int exampleCount = 1 + rand.nextInt(40);
+            for (int i = 0; i < exampleCount; i++)
+            {
+                final double[] features = createFeatures(rand);
+                final int label = rand.nextInt(classCount);
+                trainset.add(createInstance(trainset, features, label));
+                classifier.add(features, label);
+            }
+            final IBk ibk = new IBk();
+            ibk.buildClassifier(trainset);
+            for (int i = 0; i < QUERY_COUNT; i++)
+            {
+                final double[] features = createFeatures(rand);
+                final Instance inst = createInstance(trainset, features, -1);
+                final double[] expected = ibk.distributionForInstance(inst);
+                final double[] result = classifier.distributionForFeatures(features);
+                assertArrayEquals("set " + set + " query " + i, expected, result, EPSILON);
+                assertEquals("set " + set + " query " + i, argMax(expected), argMax(result));
+            }
+        }
+    }
+
+    @Test
+    public void unknownLabelsAreRejected()
+    {
+        final StyleClassifier classifier = new StyleClassifier(3, 1);
+        final double[] features = createFeatures(new Random(1));
+        for (int label : new int[] {-1, 3})
+        {
+            try
+            {
+                classifier.add(features, label);
+                fail("label " + label + " accepted");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+        assertEquals(0, classifier.size());
+    }
+
+    //==============================================================================================
+
+    /**
+     * Creates a random feature vector. The values are taken from small sets so that
+     * the neighbors at equal distances are common.
+     */
+    private static double[] createFeatures(Random rand)
+    {
+        final double[] ret = new double[StyleClassifier.DIM];
+        ret[0] = 8 + rand.nextInt(6);
+        ret[1] = rand.nextInt(2) * 0.5 + 0.25;
+        ret[2] = 0;
+        ret[3] = ret[4] = ret[5] = 0;
+        ret[6] = rand.nextInt(3) * 100 / 255.0;
+        ret[7] = 50 / 255.0;
+        ret[8] = rand.nextInt(2) * 200 / 255.0;
+        ret[9] = rand.nextBoolean() ? 1.0 : 0.0;
+        ret[10] = (10 + rand.nextInt(300)) / 1000.0;
+        ret[11] = (5 + rand.nextInt(40)) / 1000.0;
+        return ret;
+    }
+
+    private static Instances createTrainingSet(int classCount)
+    {
+        final ArrayList<String> classes = new ArrayList<>(classCount + 1);
+        for (int i = 0; i < classCount; i++)
+            classes.add("t" + i);
+        classes.add("none");
+        final ArrayList<Attribute> attributes = new ArrayList<>(StyleClassifier.DIM + 1);
+        attributes.add(new Attribute("class", classes));
+        for (int d = 0; d < StyleClassifier.DIM; d++)
+            attributes.add(new Attribute("f" + d));
+        final Instances ret = new Instances("tags", attributes, 100);
+        ret.setClassIndex(0);
+        return ret;
+    }
+
+    private static Instance createInstance(Instances dataset, double[] features, int label)
+    {
+        final Instance ret = new DenseInstance(StyleClassifier.DIM + 1);
+        ret.setDataset(dataset);
+        ret.setValue(0, (label == -1) ? dataset.classAttribute().numValues() - 1 : label);
+        for (int d = 0; d < StyleClassifier.DIM; d++)
+            ret.setValue(d + 1, features[d]);
+        return ret;
+    }
+
+    private static int argMax(double[] values)
+    {
+        int ret = -1;
+        double best = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i] > best)
+            {
+                ret = i;
+                best = values[i];
+            }
+        }
+        return ret;
+    }
+
+}